@@ -0,0 +1,153 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import javax.swing.*;
+import javax.swing.border.*;
+
+// One row per day over SPAN_YEARS either side of today. The list model is virtual (a row is
+// just an index from the first day), rows have a fixed height so the list never measures
+// them, and a single renderer component is restamped for each visible row; so scrolling a
+// decade costs the same as scrolling a week. Days whose month is not loaded yet paint as a
+// placeholder until the MonthCache delivers them.
+class AgendaView extends JPanel {
+    private static final int SPAN_YEARS = 10;
+    private static final int ROW_HEIGHT = 84;
+    private static final int LINES = 3;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEE d MMM yyyy");
+
+    private final MonthCache cache;
+    private final long origin;
+    private final JList<Long> list;
+    private final JScrollPane scroll;
+
+    // onOpenDay receives the clicked day; onScroll the topmost visible day as the list moves.
+    AgendaView(MonthCache cache, LongConsumer onOpenDay, Consumer<LocalDate> onScroll) {
+        super(new BorderLayout());
+        this.cache = cache;
+        LocalDate today = CalendarClock.get().today();
+        this.origin = today.minusYears(SPAN_YEARS).toEpochDay();
+        int rows = (int) (today.plusYears(SPAN_YEARS).toEpochDay() - origin + 1);
+
+        list = new JList<>(new AbstractListModel<Long>() {
+            @Override
+            public int getSize() {
+                return rows;
+            }
+
+            @Override
+            public Long getElementAt(int index) {
+                return origin + index;
+            }
+        });
+        list.setFixedCellHeight(ROW_HEIGHT);
+        list.setFixedCellWidth(100); // the list tracks the viewport width; this only stops it measuring rows
+        list.setCellRenderer(new DayRenderer());
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (row >= 0) onOpenDay.accept(origin + row);
+            }
+        });
+        scroll = new JScrollPane(list);
+        scroll.getVerticalScrollBar().setUnitIncrement(ROW_HEIGHT / 3);
+        scroll.getViewport().addChangeListener(e -> {
+            int first = list.getFirstVisibleIndex();
+            int last = list.getLastVisibleIndex();
+            if (first < 0) return;
+            LocalDate top = LocalDate.ofEpochDay(origin + first);
+            cache.prefetch(YearMonth.from(top).minusMonths(1),
+                    YearMonth.from(LocalDate.ofEpochDay(origin + last)).plusMonths(1));
+            onScroll.accept(top);
+        });
+        add(scroll, BorderLayout.CENTER);
+        cache.onLoaded(list::repaint);
+    }
+
+    // Puts date at the top of the view.
+    void scrollTo(LocalDate date) {
+        long row = Math.max(0, Math.min(list.getModel().getSize() - 1, date.toEpochDay() - origin));
+        int max = list.getPreferredSize().height - scroll.getViewport().getExtentSize().height;
+        scroll.getViewport().setViewPosition(new Point(0, (int) Math.min(row * ROW_HEIGHT, Math.max(0, max))));
+    }
+
+    // Date on the left, the first LINES tasks of the day by start time on the right.
+    private final class DayRenderer extends JPanel implements ListCellRenderer<Long> {
+        private final JLabel date = new JLabel();
+        private final JLabel[] lines = new JLabel[LINES + 1];
+        private final Font plain = new Font("Segoe UI", Font.PLAIN, 13);
+        private final Font bold = new Font("Segoe UI", Font.BOLD, 13);
+
+        DayRenderer() {
+            super(new BorderLayout(12, 0));
+            setBorder(new CompoundBorder(new MatteBorder(0, 0, 1, 0, new Color(220, 225, 240)),
+                    new EmptyBorder(4, 10, 4, 10)));
+            date.setFont(bold);
+            date.setPreferredSize(new Dimension(140, 20));
+            date.setVerticalAlignment(SwingConstants.TOP);
+            JPanel right = new JPanel(new GridLayout(LINES + 1, 1));
+            right.setOpaque(false);
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = new JLabel();
+                lines[i].setFont(plain);
+                right.add(lines[i]);
+            }
+            add(date, BorderLayout.WEST);
+            add(right, BorderLayout.CENTER);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Long> list, Long day, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            long today = CalendarClock.get().todayEpochDay();
+            setBackground(isSelected ? list.getSelectionBackground() : day == today ? new Color(230, 240, 255) : Color.WHITE);
+            date.setText(LocalDate.ofEpochDay(day).format(DAY_FORMAT));
+            date.setForeground(day == today ? new Color(0xB00020) : new Color(0x2575fc));
+            DayBucket bucket = cache.bucket(day);
+            List<Task> first = bucket == null ? Collections.emptyList() : firstByStart(bucket.tasks, LINES);
+            for (int i = 0; i < LINES; i++) {
+                Task t = i < first.size() ? first.get(i) : null;
+                lines[i].setText(t == null ? "" : t.line());
+                lines[i].setForeground(t != null && t.done ? Color.GRAY : Color.BLACK);
+            }
+            JLabel last = lines[LINES];
+            last.setForeground(Color.GRAY);
+            if (bucket == null) {
+                lines[0].setForeground(Color.GRAY);
+                lines[0].setText("Loading\u2026");
+                last.setText("");
+            } else if (bucket.size() == 0) {
+                lines[0].setForeground(Color.GRAY);
+                lines[0].setText("No tasks");
+                last.setText("");
+            } else {
+                last.setText(bucket.size() > LINES ? "+" + (bucket.size() - LINES) + " more" : "");
+            }
+            return this;
+        }
+    }
+
+    // The n earliest tasks in start order, without sorting the whole day.
+    static List<Task> firstByStart(List<Task> tasks, int n) {
+        if (tasks.size() <= n) {
+            List<Task> all = new ArrayList<>(tasks);
+            all.sort(Task.BY_START);
+            return all;
+        }
+        PriorityQueue<Task> best = new PriorityQueue<>(n + 1, Task.BY_START.reversed());
+        for (Task t : tasks) {
+            best.add(t);
+            if (best.size() > n) best.poll();
+        }
+        List<Task> out = new ArrayList<>(best);
+        out.sort(Task.BY_START);
+        return out;
+    }
+}
@@ -0,0 +1,231 @@
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+
+// Team workload dashboard: completion per day, week or month, the overdue trend, a weekday by
+// hour heatmap of booked time, and the most common task titles. Reports are computed off the
+// EDT by the AnalyticsEngine; reopening the dashboard or refreshing after a few edits only
+// recomputes the days that changed.
+class AnalyticsDashboard extends JDialog {
+    private static final String[] RANGES = {"Last 3 months", "Last 12 months", "Last 3 years", "Next 3 months"};
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("EEE d MMM yyyy");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("MMMM yyyy");
+
+    private final AnalyticsEngine engine;
+    private final JComboBox<String> range = new JComboBox<>(RANGES);
+    private final JComboBox<AnalyticsEngine.Period> period = new JComboBox<>(AnalyticsEngine.Period.values());
+    private final JLabel summary = new JLabel(" ");
+    private final DefaultTableModel periods = readOnlyModel("Period", "Tasks", "Done", "Completion", "Overdue");
+    private final DefaultTableModel titles = readOnlyModel("Title", "Tasks", "Done", "Completion");
+    private final TrendChart trend = new TrendChart();
+    private final Heatmap heatmap = new Heatmap();
+    private AnalyticsEngine.Report report;
+
+    AnalyticsDashboard(JFrame owner, AnalyticsEngine engine) {
+        super(owner, "Team Analytics", false);
+        this.engine = engine;
+        setSize(900, 640);
+        setLocationRelativeTo(owner);
+
+        period.setSelectedItem(AnalyticsEngine.Period.WEEK);
+        range.setSelectedIndex(1);
+        JButton refresh = new JButton("Refresh");
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 6));
+        controls.add(new JLabel("Range:"));
+        controls.add(range);
+        controls.add(new JLabel("Group by:"));
+        controls.add(period);
+        controls.add(refresh);
+        controls.add(summary);
+
+        JTable periodTable = new JTable(periods);
+        periodTable.setRowHeight(22);
+        JTable titleTable = new JTable(titles);
+        titleTable.setRowHeight(22);
+        heatmap.setBorder(BorderFactory.createTitledBorder("Busiest hours (booked minutes)"));
+        trend.setBorder(BorderFactory.createTitledBorder("Overdue trend"));
+
+        JPanel charts = new JPanel(new GridLayout(2, 1, 0, 6));
+        charts.add(trend);
+        charts.add(heatmap);
+        JScrollPane periodScroll = new JScrollPane(periodTable);
+        periodScroll.setBorder(BorderFactory.createTitledBorder("Completion"));
+        JScrollPane titleScroll = new JScrollPane(titleTable);
+        titleScroll.setBorder(BorderFactory.createTitledBorder("By title"));
+        JPanel tables = new JPanel(new GridLayout(2, 1, 0, 6));
+        tables.add(periodScroll);
+        tables.add(titleScroll);
+
+        JPanel body = new JPanel(new GridLayout(1, 2, 8, 0));
+        body.setBorder(new EmptyBorder(0, 8, 8, 8));
+        body.add(tables);
+        body.add(charts);
+        add(controls, BorderLayout.NORTH);
+        add(body, BorderLayout.CENTER);
+
+        range.addActionListener(e -> recompute());
+        refresh.addActionListener(e -> recompute());
+        period.addActionListener(e -> fillPeriods());
+        recompute();
+    }
+
+    private void recompute() {
+        LocalDate today = CalendarClock.get().today();
+        LocalDate from;
+        LocalDate to = today;
+        switch (range.getSelectedIndex()) {
+            case 0:
+                from = today.minusMonths(3);
+                break;
+            case 2:
+                from = today.minusYears(3);
+                break;
+            case 3:
+                from = today;
+                to = today.plusMonths(3);
+                break;
+            default:
+                from = today.minusMonths(12);
+                break;
+        }
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        int nowMinute = CalendarClock.get().minuteOfDay();
+        summary.setText("Computing...");
+        new SwingWorker<AnalyticsEngine.Report, Void>() {
+            @Override
+            protected AnalyticsEngine.Report doInBackground() {
+                return engine.report(fromDay, toDay, today.toEpochDay(), nowMinute);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    display(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    summary.setText("Failed: " + e.getCause());
+                }
+            }
+        }.execute();
+    }
+
+    private void display(AnalyticsEngine.Report r) {
+        report = r;
+        int tasks = r.totalTasks();
+        summary.setText(String.format("%,d tasks, %s done, %,d overdue, busiest %s  (%d of %d days recomputed, %.1f ms)",
+                tasks, percent(r.totalDone(), tasks), r.totalOverdue(), r.busiestHour(),
+                r.recomputedDays, r.partitions, r.nanos / 1e6));
+        fillPeriods();
+        titles.setRowCount(0);
+        for (AnalyticsEngine.TitleStat t : r.topTitles) {
+            titles.addRow(new Object[] {t.title, t.total, t.done, percent(t.done, t.total)});
+        }
+        trend.setWeeks(r.byPeriod(AnalyticsEngine.Period.WEEK));
+        heatmap.setHeat(r.heat);
+    }
+
+    private void fillPeriods() {
+        if (report == null) return;
+        AnalyticsEngine.Period p = (AnalyticsEngine.Period) period.getSelectedItem();
+        periods.setRowCount(0);
+        List<long[]> rows = report.byPeriod(p);
+        // newest first; the interesting end of a long range
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            long[] row = rows.get(i);
+            LocalDate start = LocalDate.ofEpochDay(row[0]);
+            String label = p == AnalyticsEngine.Period.MONTH ? start.format(MONTH)
+                    : p == AnalyticsEngine.Period.WEEK ? "Week of " + start.format(DAY) : start.format(DAY);
+            periods.addRow(new Object[] {label, row[1], row[2], percent(row[2], row[1]), row[3]});
+        }
+    }
+
+    private static String percent(long part, long whole) {
+        return whole == 0 ? "-" : String.format("%.0f%%", 100.0 * part / whole);
+    }
+
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    // Overdue tasks per week as bars, oldest on the left.
+    private static class TrendChart extends JPanel {
+        private List<long[]> weeks = Collections.emptyList();
+
+        void setWeeks(List<long[]> weeks) {
+            this.weeks = weeks;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Insets in = getInsets();
+            int w = getWidth() - in.left - in.right - 8;
+            int h = getHeight() - in.top - in.bottom - 8;
+            if (weeks.isEmpty() || w <= 0 || h <= 0) return;
+            long max = 1;
+            for (long[] week : weeks) max = Math.max(max, week[3]);
+            g.setColor(new Color(0xB00020));
+            for (int i = 0; i < weeks.size(); i++) {
+                int x0 = in.left + 4 + i * w / weeks.size();
+                int x1 = in.left + 4 + (i + 1) * w / weeks.size();
+                int bar = (int) (weeks.get(i)[3] * h / max);
+                g.fillRect(x0, in.top + 4 + h - bar, Math.max(1, x1 - x0 - 1), bar);
+            }
+            g.setColor(Color.DARK_GRAY);
+            g.drawString("max " + max, in.left + 6, in.top + 16);
+        }
+    }
+
+    // Weekday rows by hour columns, darker for more booked minutes.
+    private static class Heatmap extends JPanel {
+        private static final String[] DAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+        private long[][] heat = new long[7][24];
+
+        void setHeat(long[][] heat) {
+            this.heat = heat;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Insets in = getInsets();
+            int labelW = 34;
+            int w = getWidth() - in.left - in.right - labelW - 4;
+            int h = getHeight() - in.top - in.bottom - 18;
+            if (w <= 0 || h <= 0) return;
+            long max = 1;
+            for (long[] day : heat) for (long m : day) max = Math.max(max, m);
+            g.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+            for (int d = 0; d < 7; d++) {
+                int y0 = in.top + d * h / 7;
+                int y1 = in.top + (d + 1) * h / 7;
+                g.setColor(Color.DARK_GRAY);
+                g.drawString(DAYS[d], in.left + 2, (y0 + y1) / 2 + 4);
+                for (int hr = 0; hr < 24; hr++) {
+                    int x0 = in.left + labelW + hr * w / 24;
+                    int x1 = in.left + labelW + (hr + 1) * w / 24;
+                    float level = (float) heat[d][hr] / max;
+                    g.setColor(new Color(1f - 0.85f * level, 1f - 0.6f * level, 1f));
+                    g.fillRect(x0, y0, x1 - x0 - 1, y1 - y0 - 1);
+                }
+            }
+            g.setColor(Color.DARK_GRAY);
+            for (int hr = 0; hr < 24; hr += 3) {
+                g.drawString(String.valueOf(hr), in.left + labelW + hr * w / 24, in.top + h + 12);
+            }
+        }
+    }
+}
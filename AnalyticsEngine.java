@@ -0,0 +1,279 @@
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Workload reporting over a day range. The unit of work is one day: its stored tasks reduce to
+// a DayStats (counts, minutes booked per hour, counts per title), and a report is the merge of
+// those over the range, computed as a parallel stream on the common fork/join pool.
+//
+// DayStats are cached per day together with the DayBucket they were computed from. Store
+// edits replace a day's bucket, so a cached entry is used only while its bucket is still the
+// stored one; after an edit exactly the touched days are recomputed. The listener also drops
+// entries as days change, which keeps deleted days from lingering, and each report drops the
+// entries outside its range or no longer matching the store (a month the pager unloaded, which
+// listeners are not told about), so the cache holds at most the range last reported.
+// Recurring occurrences are few per day and are expanded per report rather than cached. With
+// a paged store a report covers the resident months only; paging a year in for a chart would
+// evict what is on screen.
+class AnalyticsEngine implements TaskStore.Listener {
+    static final int TOP_TITLES = 20;
+
+    private final TaskStore store;
+    private final Map<Long, DayStats> cache = new ConcurrentHashMap<>();
+
+    AnalyticsEngine(TaskStore store) {
+        this.store = store;
+    }
+
+    void attach() {
+        store.addListener(this);
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        for (TaskChange change : changes) {
+            if (change.isRuleChange()) continue; // occurrences are never cached
+            cache.remove(change.epochDay());
+            if (change.before != null) cache.remove(change.before.epochDay);
+        }
+    }
+
+    int cachedDays() {
+        return cache.size();
+    }
+
+    // Statistics for the days in [fromDay, toDay]; today's overdue count is taken as of nowMinute.
+    Report report(long fromDay, long toDay, long today, int nowMinute) {
+        long started = System.nanoTime();
+        LongAdder recomputed = new LongAdder();
+        Report report = store.range(fromDay, toDay).entrySet().parallelStream()
+                .map(e -> stats(e.getKey(), e.getValue(), recomputed))
+                .collect(() -> new Report(fromDay, toDay, today), Report::add, Report::merge);
+        Map<Long, List<Task>> occurrences = new HashMap<>();
+        for (RecurrenceRule rule : store.rules()) {
+            for (Task t : rule.occurrences(fromDay, toDay)) {
+                occurrences.computeIfAbsent(t.epochDay, d -> new ArrayList<>()).add(t);
+            }
+        }
+        for (Map.Entry<Long, List<Task>> e : occurrences.entrySet()) {
+            report.add(DayStats.of(e.getKey(), null, e.getValue()));
+        }
+        // today's overdue depends on the time, so it is the one figure never taken from the cache
+        if (today >= fromDay && today <= toDay) {
+            report.overdue[(int) (today - fromDay)] = store.bucket(today).overdue(today, today, nowMinute);
+        }
+        cache.entrySet().removeIf(e -> e.getKey() < fromDay || e.getKey() > toDay
+                || store.range(e.getKey(), e.getKey()).get(e.getKey()) != e.getValue().source);
+        report.finish(recomputed.intValue(), System.nanoTime() - started);
+        return report;
+    }
+
+    private DayStats stats(long day, DayBucket bucket, LongAdder recomputed) {
+        DayStats cached = cache.get(day);
+        if (cached != null && cached.source == bucket) return cached;
+        recomputed.increment();
+        DayStats fresh = DayStats.of(day, bucket, bucket.tasks);
+        cache.put(day, fresh);
+        return fresh;
+    }
+
+    // Groups "Standup 12" and "Standup 13" together: case-folded, digit runs replaced by '#'.
+    static String titleKey(String title) {
+        String t = title.trim();
+        StringBuilder sb = new StringBuilder(t.length());
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (!Character.isDigit(c)) sb.append(Character.toLowerCase(c));
+            else if (sb.length() == 0 || sb.charAt(sb.length() - 1) != '#') sb.append('#');
+        }
+        return sb.toString();
+    }
+
+    static final class DayStats {
+        final long epochDay;
+        final DayBucket source;
+        final int total;
+        final int done;
+        final int[] hourMinutes = new int[24];
+        final Map<String, int[]> titles = new HashMap<>(); // key -> {total, done}
+
+        private DayStats(long epochDay, DayBucket source, int total, int done) {
+            this.epochDay = epochDay;
+            this.source = source;
+            this.total = total;
+            this.done = done;
+        }
+
+        static DayStats of(long epochDay, DayBucket source, List<Task> tasks) {
+            int done = 0;
+            for (Task t : tasks) if (t.done) done++;
+            DayStats s = new DayStats(epochDay, source, tasks.size(), done);
+            for (Task t : tasks) {
+                int[] counts = s.titles.computeIfAbsent(titleKey(t.title), k -> new int[2]);
+                counts[0]++;
+                if (t.done) counts[1]++;
+                if (t.startMinute == Task.NO_TIME) continue;
+                // an open-ended task books half an hour
+                int end = t.endMinute == Task.NO_TIME || t.endMinute <= t.startMinute
+                        ? Math.min(t.startMinute + 30, 24 * 60) : t.endMinute;
+                for (int m = t.startMinute; m < end; ) {
+                    int hour = m / 60;
+                    int next = Math.min(end, (hour + 1) * 60);
+                    s.hourMinutes[hour] += next - m;
+                    m = next;
+                }
+            }
+            return s;
+        }
+    }
+
+    static final class TitleStat {
+        final String title;
+        final int total;
+        final int done;
+
+        TitleStat(String title, int total, int done) {
+            this.title = title;
+            this.total = total;
+            this.done = done;
+        }
+    }
+
+    // Per-day series over [fromDay, toDay] plus the heatmap and title totals. Built by the
+    // parallel collect: each worker fills its own Report, and merge() adds them up.
+    static final class Report {
+        final long fromDay;
+        final long toDay;
+        final long today;
+        final int[] total;
+        final int[] done;
+        final int[] overdue;
+        // minutes booked, [weekday Monday=0][hour]
+        final long[][] heat = new long[7][24];
+        private final Map<String, int[]> titleCounts = new HashMap<>();
+        List<TitleStat> topTitles = Collections.emptyList();
+        int recomputedDays;
+        int partitions;
+        long nanos;
+
+        Report(long fromDay, long toDay, long today) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.today = today;
+            int n = (int) (toDay - fromDay + 1);
+            total = new int[n];
+            done = new int[n];
+            overdue = new int[n];
+        }
+
+        void add(DayStats s) {
+            int i = (int) (s.epochDay - fromDay);
+            total[i] += s.total;
+            done[i] += s.done;
+            if (s.epochDay < today) overdue[i] += s.total - s.done;
+            int weekday = RecurrenceRule.weekday(s.epochDay);
+            for (int h = 0; h < 24; h++) heat[weekday][h] += s.hourMinutes[h];
+            for (Map.Entry<String, int[]> e : s.titles.entrySet()) {
+                int[] c = titleCounts.computeIfAbsent(e.getKey(), k -> new int[2]);
+                c[0] += e.getValue()[0];
+                c[1] += e.getValue()[1];
+            }
+            partitions++;
+        }
+
+        void merge(Report other) {
+            for (int i = 0; i < total.length; i++) {
+                total[i] += other.total[i];
+                done[i] += other.done[i];
+                overdue[i] += other.overdue[i];
+            }
+            for (int d = 0; d < 7; d++) {
+                for (int h = 0; h < 24; h++) heat[d][h] += other.heat[d][h];
+            }
+            for (Map.Entry<String, int[]> e : other.titleCounts.entrySet()) {
+                int[] c = titleCounts.computeIfAbsent(e.getKey(), k -> new int[2]);
+                c[0] += e.getValue()[0];
+                c[1] += e.getValue()[1];
+            }
+            partitions += other.partitions;
+        }
+
+        private void finish(int recomputedDays, long nanos) {
+            this.recomputedDays = recomputedDays;
+            this.nanos = nanos;
+            topTitles = titleCounts.entrySet().stream()
+                    .sorted((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]))
+                    .limit(TOP_TITLES)
+                    .map(e -> new TitleStat(e.getKey(), e.getValue()[0], e.getValue()[1]))
+                    .collect(Collectors.toList());
+        }
+
+        int totalTasks() {
+            return Arrays.stream(total).sum();
+        }
+
+        int totalDone() {
+            return Arrays.stream(done).sum();
+        }
+
+        int totalOverdue() {
+            return Arrays.stream(overdue).sum();
+        }
+
+        // Rows of {period start day, tasks, done, overdue} for periods of DAY, WEEK (starting
+        // on Sunday, as in the calendar) or MONTH, in ascending order.
+        List<long[]> byPeriod(Period period) {
+            List<long[]> rows = new ArrayList<>();
+            long[] row = null;
+            long key = Long.MIN_VALUE;
+            for (int i = 0; i < total.length; i++) {
+                long day = fromDay + i;
+                long k = period.start(day);
+                if (row == null || k != key) {
+                    key = k;
+                    row = new long[] {k, 0, 0, 0};
+                    rows.add(row);
+                }
+                row[1] += total[i];
+                row[2] += done[i];
+                row[3] += overdue[i];
+            }
+            return rows;
+        }
+
+        // The busiest weekday and hour, e.g. "Tue 10:00", or "" when nothing is timed.
+        String busiestHour() {
+            int bd = -1;
+            int bh = -1;
+            for (int d = 0; d < 7; d++) {
+                for (int h = 0; h < 24; h++) {
+                    if (heat[d][h] > 0 && (bd < 0 || heat[d][h] > heat[bd][bh])) {
+                        bd = d;
+                        bh = h;
+                    }
+                }
+            }
+            if (bd < 0) return "";
+            return new String[] {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"}[bd] + " " + LocalTime.of(bh, 0);
+        }
+    }
+
+    enum Period {
+        DAY, WEEK, MONTH;
+
+        long start(long epochDay) {
+            switch (this) {
+                case WEEK:
+                    return epochDay - LocalDate.ofEpochDay(epochDay).getDayOfWeek().getValue() % 7;
+                case MONTH:
+                    return LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+                default:
+                    return epochDay;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The one source of "now" for the calendar, the views and the reminder scheduler. The app runs
+// on SYSTEM; soak tests install a Simulated clock before building anything, then move time
+// forward in steps to replay whole days, midnight rollovers included, in seconds.
+abstract class CalendarClock {
+    static final CalendarClock SYSTEM = new CalendarClock() {
+        @Override
+        long millis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private static volatile CalendarClock current = SYSTEM;
+
+    static CalendarClock get() {
+        return current;
+    }
+
+    // Must happen before the components that read the clock are created.
+    static void install(CalendarClock clock) {
+        current = clock;
+    }
+
+    // Wall time in epoch milliseconds.
+    abstract long millis();
+
+    // Monotonic time for measuring delays; only differences are meaningful.
+    abstract long nanoTime();
+
+    // Runs listener after every jump of a simulated clock; the system clock never jumps.
+    void onAdvance(Runnable listener) {
+    }
+
+    ZoneId zone() {
+        return ZoneId.systemDefault();
+    }
+
+    LocalDateTime now() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis()), zone());
+    }
+
+    LocalDate today() {
+        return now().toLocalDate();
+    }
+
+    long todayEpochDay() {
+        return today().toEpochDay();
+    }
+
+    int minuteOfDay() {
+        LocalDateTime now = now();
+        return now.getHour() * 60 + now.getMinute();
+    }
+
+    // Milliseconds from now until time, negative if it has passed.
+    long millisUntil(LocalDateTime time) {
+        return time.atZone(zone()).toInstant().toEpochMilli() - millis();
+    }
+
+    // Stands still until advanced. Listeners run on the advancing thread after time has moved.
+    static final class Simulated extends CalendarClock {
+        private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+        private volatile long millis;
+        private volatile long nanos;
+
+        Simulated(LocalDateTime start) {
+            this.millis = start.atZone(zone()).toInstant().toEpochMilli();
+        }
+
+        @Override
+        long millis() {
+            return millis;
+        }
+
+        @Override
+        long nanoTime() {
+            return nanos;
+        }
+
+        @Override
+        void onAdvance(Runnable listener) {
+            listeners.add(listener);
+        }
+
+        void advance(Duration by) {
+            if (by.isNegative()) throw new IllegalArgumentException("Time only moves forward: " + by);
+            synchronized (this) {
+                millis += by.toMillis();
+                nanos += by.toNanos();
+            }
+            for (Runnable listener : listeners) listener.run();
+        }
+    }
+}
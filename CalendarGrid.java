@@ -0,0 +1,245 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import javax.swing.*;
+import javax.swing.border.*;
+
+// The month grid: weekday headers plus 7x6 day cells that are built once and re-targeted when
+// the month changes. It follows the store itself and only touches cells whose counts changed.
+// Needs no window, so benchmarks can drive it headless.
+class CalendarGrid extends JPanel {
+    private static final Color CELL_BG = new Color(230, 240, 255);
+    private static final Color CELL_HOVER_BG = new Color(210, 225, 250);
+    private static final Border CELL_BORDER = new LineBorder(new Color(0x2575fc), 1);
+    private static final Font DAY_FONT = new Font("Segoe UI", Font.BOLD, 14);
+    private static final Font UNFINISHED_FONT = new Font("Segoe UI", Font.PLAIN, 10);
+    private static final Font OVERDUE_FONT = new Font("Segoe UI", Font.BOLD, 10);
+    static final Color CONFLICT_FG = new Color(0xC05800);
+
+    private final TaskStore store;
+    private final DayCell[] cells = new DayCell[42];
+    private long firstCellEpochDay;
+    private final Set<Long> dirtyDays = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final AtomicInteger bulkUpdates = new AtomicInteger();
+    private final CalendarMetrics metrics = CalendarMetrics.INSTANCE;
+    private final CalendarClock clock = CalendarClock.get();
+    private final javax.swing.Timer overdueTimer = new javax.swing.Timer(0, e -> refreshCells());
+
+    // onDayClicked receives the day of month of the clicked cell.
+    CalendarGrid(TaskStore store, IntConsumer onDayClicked) {
+        super(new GridLayout(0, 7));
+        this.store = store;
+        setBackground(Color.WHITE);
+        overdueTimer.setRepeats(false);
+
+        String[] days = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+        for (String day : days) {
+            JLabel lbl = new JLabel(day, SwingConstants.CENTER);
+            lbl.setFont(DAY_FONT);
+            lbl.setForeground(new Color(0x2575fc));
+            add(lbl);
+        }
+
+        MouseAdapter cellMouse = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                DayCell cell = (DayCell) e.getComponent();
+                if (cell.day > 0) onDayClicked.accept(cell.day);
+            }
+
+            @Override
+            public void mouseEntered(MouseEvent e) {
+                DayCell cell = (DayCell) e.getComponent();
+                if (cell.day > 0) cell.setBackground(CELL_HOVER_BG);
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                DayCell cell = (DayCell) e.getComponent();
+                if (cell.day > 0) cell.setBackground(CELL_BG);
+            }
+        };
+
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new DayCell();
+            cells[i].addMouseListener(cellMouse);
+            add(cells[i]);
+        }
+        metrics.countComponents(this);
+    }
+
+    // Starts following store changes.
+    void attach() {
+        store.addListener(this::onTasksChanged);
+        // overdueTimer waits in real time, so a simulated clock jump refreshes directly
+        clock.onAdvance(() -> SwingUtilities.invokeLater(this::refreshCells));
+    }
+
+    // While a bulk update runs, change notifications are ignored; the matching
+    // endBulkUpdate() refreshes every cell once.
+    void beginBulkUpdate() {
+        bulkUpdates.incrementAndGet();
+    }
+
+    void endBulkUpdate() {
+        bulkUpdates.decrementAndGet();
+        refreshCells();
+    }
+
+    // Re-targets the existing cells at month; no components are created here.
+    void showMonth(YearMonth month) {
+        long started = System.nanoTime();
+        int startDay = month.atDay(1).getDayOfWeek().getValue() % 7;
+        int maxDay = month.lengthOfMonth();
+        firstCellEpochDay = month.atDay(1).toEpochDay() - startDay;
+
+        for (int i = 0; i < cells.length; i++) {
+            int day = i - startDay + 1;
+            cells[i].setDay(day < 1 || day > maxDay ? 0 : day, firstCellEpochDay + i);
+        }
+        refreshCells();
+        metrics.calendarUpdate.record(System.nanoTime() - started);
+    }
+
+    // Store listener; may run on any thread, so it only records the day and queues one refresh.
+    private void onTasksChanged(List<TaskChange> changes) {
+        // a running bulk operation refreshes the whole grid once when it finishes
+        if (bulkUpdates.get() > 0) return;
+        for (TaskChange change : changes) {
+            if (change.isRuleChange()) {
+                // a rule can touch every visible day
+                SwingUtilities.invokeLater(this::refreshCells);
+                return;
+            }
+            dirtyDays.add(change.epochDay());
+        }
+        if (refreshQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::refreshDirtyDays);
+        }
+    }
+
+    private void refreshDirtyDays() {
+        long started = System.nanoTime();
+        refreshQueued.set(false);
+        long today = clock.todayEpochDay();
+        int nowMinute = clock.minuteOfDay();
+        for (Iterator<Long> it = dirtyDays.iterator(); it.hasNext(); ) {
+            long epochDay = it.next();
+            it.remove();
+            long idx = epochDay - firstCellEpochDay;
+            if (idx >= 0 && idx < cells.length) refreshCell(cells[(int) idx], today, nowMinute);
+        }
+        scheduleOverdueRefresh();
+        metrics.cellRefresh.record(System.nanoTime() - started);
+    }
+
+    // Recomputes the counts of the visible days; only cells whose counts changed repaint.
+    void refreshCells() {
+        long started = System.nanoTime();
+        long today = clock.todayEpochDay();
+        int nowMinute = clock.minuteOfDay();
+        for (DayCell cell : cells) {
+            refreshCell(cell, today, nowMinute);
+        }
+        scheduleOverdueRefresh();
+        metrics.cellRefresh.record(System.nanoTime() - started);
+    }
+
+    private void refreshCell(DayCell cell, long today, int nowMinute) {
+        if (cell.day == 0) {
+            if (cell.setCounts(0, 0, 0)) metrics.cellRepainted();
+            return;
+        }
+        DayBucket bucket = store.bucket(cell.epochDay);
+        if (cell.setCounts(bucket.unfinished, bucket.conflicts(), bucket.overdue(cell.epochDay, today, nowMinute))) {
+            metrics.cellRepainted();
+        }
+    }
+
+    // Arms overdueTimer for the next instant at which a visible count can flip to overdue:
+    // the earliest pending end time today, or midnight.
+    private void scheduleOverdueRefresh() {
+        LocalDateTime now = clock.now();
+        int nowMinute = now.getHour() * 60 + now.getMinute();
+        int nextEnd = store.bucket(now.toLocalDate().toEpochDay()).nextEndAtOrAfter(nowMinute);
+        int nextMinute = nextEnd == Task.NO_TIME ? 24 * 60 : nextEnd + 1;
+        long delay = clock.millisUntil(now.toLocalDate().atStartOfDay().plusMinutes(nextMinute));
+        overdueTimer.setInitialDelay((int) Math.max(delay, 0));
+        overdueTimer.restart();
+    }
+
+    private static class DayCell extends JPanel {
+        private final JLabel dayLabel = new JLabel();
+        private final JLabel unfinishedLabel = new JLabel();
+        private final JLabel conflictLabel = new JLabel();
+        private final JLabel overdueLabel = new JLabel();
+        int day;
+        long epochDay;
+        private long unfinished = -1;
+        private long conflicts = -1;
+        private long overdue = -1;
+
+        DayCell() {
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+            setBackground(CELL_BG);
+
+            dayLabel.setFont(DAY_FONT);
+            dayLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            dayLabel.setBorder(new EmptyBorder(6, 0, 2, 0));
+            add(dayLabel);
+
+            unfinishedLabel.setFont(UNFINISHED_FONT);
+            unfinishedLabel.setForeground(Color.DARK_GRAY);
+            unfinishedLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            unfinishedLabel.setBorder(new EmptyBorder(2, 0, 0, 0));
+            add(unfinishedLabel);
+
+            conflictLabel.setFont(UNFINISHED_FONT);
+            conflictLabel.setForeground(CONFLICT_FG);
+            conflictLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            add(conflictLabel);
+
+            overdueLabel.setFont(OVERDUE_FONT);
+            overdueLabel.setForeground(Color.RED);
+            overdueLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            overdueLabel.setBorder(new EmptyBorder(0, 0, 6, 0));
+            add(overdueLabel);
+        }
+
+        void setDay(int day, long epochDay) {
+            if (this.day == day && this.epochDay == epochDay) return;
+            this.day = day;
+            this.epochDay = epochDay;
+            boolean blank = day == 0;
+            setOpaque(!blank);
+            setBorder(blank ? null : CELL_BORDER);
+            setBackground(CELL_BG);
+            setCursor(Cursor.getPredefinedCursor(blank ? Cursor.DEFAULT_CURSOR : Cursor.HAND_CURSOR));
+            dayLabel.setText(blank ? "" : String.valueOf(day));
+            repaint();
+        }
+
+        // Returns whether anything changed (and so needs repainting).
+        boolean setCounts(long unfinished, long conflicts, long overdue) {
+            if (this.unfinished == unfinished && this.conflicts == conflicts && this.overdue == overdue) return false;
+            this.unfinished = unfinished;
+            this.conflicts = conflicts;
+            this.overdue = overdue;
+            unfinishedLabel.setText("\uD83D\uDCCC " + unfinished + " Unfinished");
+            unfinishedLabel.setVisible(unfinished > 0);
+            conflictLabel.setText("\u23F1 " + conflicts + " Overlapping");
+            conflictLabel.setVisible(conflicts > 0);
+            overdueLabel.setText("\u26A0 " + overdue + " Overdue");
+            overdueLabel.setVisible(overdue > 0);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import java.awt.Component;
+import java.awt.Container;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.ObjectName;
+import javax.swing.*;
+
+// Hot-path counters for the calendar UI, the reminder scheduler and the task store, exposed as
+// the MBean TeamTasker:type=CalendarMetrics. With -Dteamtasker.metrics.log=<seconds> the same
+// figures are also written to the "teamtasker.metrics" logger at that interval.
+class CalendarMetrics implements CalendarMetricsMBean {
+    static final CalendarMetrics INSTANCE = new CalendarMetrics();
+
+    private static final Logger LOG = Logger.getLogger("teamtasker.metrics");
+    private static final long EDT_PROBE_MILLIS = 250;
+    private static final long MICROS = 1000;
+
+    // all durations are recorded in nanoseconds
+    final Histogram calendarUpdate = new Histogram();
+    final Histogram cellRefresh = new Histogram();
+    final Histogram edtLatency = new Histogram();
+    final Histogram reminderLoop = new Histogram();
+    final Histogram reminderLag = new Histogram();
+    private final LongAdder cellsRepainted = new LongAdder();
+    private final LongAdder remindersFired = new LongAdder();
+    private final LongAdder journalWriteFailures = new LongAdder();
+    private volatile TaskJournal journal;
+    private final AtomicBoolean probePending = new AtomicBoolean();
+    private volatile int componentCount;
+    private volatile TaskStore store;
+    private ScheduledExecutorService scheduler;
+
+    synchronized void start(TaskStore store) {
+        this.store = store;
+        if (scheduler != null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("TeamTasker:type=CalendarMetrics"));
+        } catch (Exception e) {
+            LOG.warning("Could not register metrics MBean: " + e);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "calendar-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::probeEdt, EDT_PROBE_MILLIS, EDT_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+        long logSeconds = Long.getLong("teamtasker.metrics.log", 0);
+        if (logSeconds > 0) {
+            scheduler.scheduleAtFixedRate(() -> LOG.info(dump()), logSeconds, logSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // Posts a timestamped no-op to the EDT and records how long it waited in the queue. Only
+    // one probe is outstanding at a time, so a stalled EDT does not pile them up.
+    private void probeEdt() {
+        if (!probePending.compareAndSet(false, true)) return;
+        long posted = System.nanoTime();
+        SwingUtilities.invokeLater(() -> {
+            edtLatency.record(System.nanoTime() - posted);
+            probePending.set(false);
+        });
+    }
+
+    void cellRepainted() {
+        cellsRepainted.increment();
+    }
+
+    void reminderFired() {
+        remindersFired.increment();
+    }
+
+    void journalWriteFailed() {
+        journalWriteFailures.increment();
+    }
+
+    void watchJournal(TaskJournal journal) {
+        this.journal = journal;
+    }
+
+    void countComponents(Container root) {
+        componentCount = count(root);
+    }
+
+    private static int count(Container c) {
+        int n = 1;
+        for (Component child : c.getComponents()) {
+            n += child instanceof Container ? count((Container) child) : 1;
+        }
+        return n;
+    }
+
+    @Override
+    public long getCalendarUpdates() {
+        return calendarUpdate.count();
+    }
+
+    @Override
+    public String getCalendarUpdateMicros() {
+        return calendarUpdate.summary(MICROS);
+    }
+
+    @Override
+    public String getCalendarUpdateHistogram() {
+        return calendarUpdate.format(MICROS);
+    }
+
+    @Override
+    public String getCellRefreshMicros() {
+        return cellRefresh.summary(MICROS);
+    }
+
+    @Override
+    public int getCalendarComponentCount() {
+        return componentCount;
+    }
+
+    @Override
+    public long getCellsRepainted() {
+        return cellsRepainted.sum();
+    }
+
+    @Override
+    public String getEdtLatencyMicros() {
+        return edtLatency.summary(MICROS);
+    }
+
+    @Override
+    public String getEdtLatencyHistogram() {
+        return edtLatency.format(MICROS);
+    }
+
+    @Override
+    public String getReminderLoopMicros() {
+        return reminderLoop.summary(MICROS);
+    }
+
+    @Override
+    public String getReminderLagMicros() {
+        return reminderLag.summary(MICROS);
+    }
+
+    @Override
+    public long getRemindersFired() {
+        return remindersFired.sum();
+    }
+
+    @Override
+    public long getJournalWriteFailures() {
+        return journalWriteFailures.sum();
+    }
+
+    @Override
+    public int getJournalBacklog() {
+        TaskJournal j = journal;
+        return j == null ? 0 : j.backlog();
+    }
+
+    @Override
+    public int getTaskCount() {
+        TaskStore s = store;
+        return s == null ? 0 : s.size();
+    }
+
+    @Override
+    public int getDayBucketCount() {
+        TaskStore s = store;
+        return s == null ? 0 : s.dayCount();
+    }
+
+    @Override
+    public long getEstimatedStoreBytes() {
+        TaskStore s = store;
+        if (s == null) return 0;
+        long bytes = 0;
+        for (DayBucket bucket : s.range(Long.MIN_VALUE, Long.MAX_VALUE).values()) {
+            bytes += bucket.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    // Walks every bucket, so it costs O(tasks); it only runs when someone asks.
+    @Override
+    public String getDayBucketBytesHistogram() {
+        TaskStore s = store;
+        if (s == null) return "empty";
+        Histogram h = new Histogram();
+        for (DayBucket bucket : s.range(Long.MIN_VALUE, Long.MAX_VALUE).values()) {
+            h.record(bucket.estimatedBytes());
+        }
+        return h.summary(1) + " | " + h.format(1);
+    }
+
+    @Override
+    public String dump() {
+        return "calendarUpdate[us] " + getCalendarUpdateMicros()
+                + "; cellRefresh[us] " + getCellRefreshMicros()
+                + "; components=" + componentCount + " cellsRepainted=" + getCellsRepainted()
+                + "; edtLatency[us] " + getEdtLatencyMicros()
+                + "; reminderLoop[us] " + getReminderLoopMicros()
+                + "; reminderLag[us] " + getReminderLagMicros() + " fired=" + getRemindersFired()
+                + "; journal failures=" + getJournalWriteFailures() + " backlog=" + getJournalBacklog()
+                + "; tasks=" + getTaskCount() + " days=" + getDayBucketCount();
+    }
+
+    @Override
+    public void reset() {
+        calendarUpdate.reset();
+        cellRefresh.reset();
+        edtLatency.reset();
+        reminderLoop.reset();
+        reminderLag.reset();
+        cellsRepainted.reset();
+        remindersFired.reset();
+        journalWriteFailures.reset();
+    }
+}
@@ -0,0 +1,41 @@
+// Management interface of CalendarMetrics. Durations are in microseconds; the *Histogram
+// attributes list power-of-two buckets as "<=bound:count".
+public interface CalendarMetricsMBean {
+    long getCalendarUpdates();
+
+    String getCalendarUpdateMicros();
+
+    String getCalendarUpdateHistogram();
+
+    String getCellRefreshMicros();
+
+    int getCalendarComponentCount();
+
+    long getCellsRepainted();
+
+    String getEdtLatencyMicros();
+
+    String getEdtLatencyHistogram();
+
+    String getReminderLoopMicros();
+
+    String getReminderLagMicros();
+
+    long getRemindersFired();
+
+    long getJournalWriteFailures();
+
+    int getJournalBacklog();
+
+    int getTaskCount();
+
+    int getDayBucketCount();
+
+    long getEstimatedStoreBytes();
+
+    String getDayBucketBytesHistogram();
+
+    String dump();
+
+    void reset();
+}
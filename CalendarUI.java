@@ -1,21 +1,59 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 public class CalendarUI extends JFrame {
-    private final JPanel calendarPanel;
+    private static final String VIEW_MONTH = "Month";
+    private static final String VIEW_WEEK = "Week";
+    private static final String VIEW_AGENDA = "Agenda";
+    private static final String VIEW_SCROLL = "Months";
+
+    private final CalendarGrid calendarPanel;
+    private final WeekView weekView;
+    private final AgendaView agendaView;
+    private final MonthScrollView scrollView;
+    private final CardLayout viewCards = new CardLayout();
+    private final JPanel views = new JPanel(viewCards);
+    private final MonthCache monthCache;
+    private final AnalyticsEngine analytics;
+    private AnalyticsDashboard dashboard;
     private final JLabel monthLabel;
     private final JLabel clockLabel = new JLabel();
-    private final Calendar calendar = Calendar.getInstance();
-    private final Map<String, List<Task>> taskMap = new HashMap<>();
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMMM yyyy");
-
-    public CalendarUI(String username) {
-        setTitle("TeamTasker Calendar - " + username);
+    private final JLabel statusLabel = new JLabel();
+    private final JLabel syncLabel = new JLabel();
+    // The day the current view is positioned on; every view navigates by moving it.
+    private LocalDate focus = CalendarClock.get().today();
+    private String view = VIEW_MONTH;
+    private final TaskStore store;
+    private final DateTimeFormatter monthFormat = DateTimeFormatter.ofPattern("MMMM yyyy");
+    private final DateTimeFormatter weekFormat = DateTimeFormatter.ofPattern("'Week of' d MMM yyyy");
+    private final DateTimeFormatter clockFormat = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private final ReminderScheduler reminders;
+    private final NotificationCenter notifications;
+    private final CalendarMetrics metrics = CalendarMetrics.INSTANCE;
+    private final SyncClient sync;
+
+    // Builds the window around an already loaded store without showing it; StartupPipeline
+    // does this while the login screen is up, and open() shows it after login.
+    CalendarUI(TaskStore store, SyncClient sync, SearchIndex search) {
+        this.store = store;
+        this.sync = sync;
+        this.notifications = new NotificationCenter(this, this::showTask);
+        this.reminders = new ReminderScheduler(store, notifications);
+        this.monthCache = new MonthCache(store);
+        this.analytics = new AnalyticsEngine(store);
+        setTitle("TeamTasker Calendar");
         setSize(920, 620);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -40,197 +78,309 @@ public class CalendarUI extends JFrame {
         monthLabel.setForeground(Color.WHITE);
         updateMonthLabel();
 
+        JComboBox<String> viewPicker = new JComboBox<>(new String[] {VIEW_MONTH, VIEW_WEEK, VIEW_AGENDA, VIEW_SCROLL});
+        viewPicker.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        viewPicker.setFocusable(false);
+
         centerHeader.add(prevMonth);
         centerHeader.add(monthLabel);
         centerHeader.add(nextMonth);
+        centerHeader.add(viewPicker);
 
         clockLabel.setFont(new Font("Segoe UI", Font.BOLD, 18));
         clockLabel.setForeground(Color.WHITE);
         JPanel clockPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         clockPanel.setBackground(new Color(0x2575fc));
+        syncLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        syncLabel.setForeground(Color.WHITE);
+        clockPanel.add(syncLabel);
+        clockPanel.add(notifications.button());
         clockPanel.add(clockLabel);
 
+        JButton importBtn = new JButton("Import");
+        JButton exportBtn = new JButton("Export");
+        JButton analyticsBtn = new JButton("Analytics");
+        JButton cleanUpBtn = new JButton("Clean Up");
+        styleHeaderArrow(importBtn);
+        styleHeaderArrow(exportBtn);
+        styleHeaderArrow(analyticsBtn);
+        styleHeaderArrow(cleanUpBtn);
+        importBtn.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        exportBtn.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        analyticsBtn.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        cleanUpBtn.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        statusLabel.setForeground(Color.WHITE);
+        JPanel toolsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        toolsPanel.setBackground(new Color(0x2575fc));
+        toolsPanel.add(importBtn);
+        toolsPanel.add(exportBtn);
+        toolsPanel.add(analyticsBtn);
+        toolsPanel.add(cleanUpBtn);
+        toolsPanel.add(new SearchField(search, this::showTask));
+        toolsPanel.add(statusLabel);
+
+        headerPanel.add(toolsPanel, BorderLayout.WEST);
         headerPanel.add(centerHeader, BorderLayout.CENTER);
         headerPanel.add(clockPanel, BorderLayout.EAST);
 
-        prevMonth.addActionListener(e -> {
-            calendar.add(Calendar.MONTH, -1);
-            updateCalendar();
+        importBtn.addActionListener(e -> importTasks(importBtn));
+        exportBtn.addActionListener(e -> exportTasks(exportBtn));
+        cleanUpBtn.addActionListener(e -> deleteCompletedBefore(cleanUpBtn));
+        analyticsBtn.addActionListener(e -> {
+            if (dashboard == null) dashboard = new AnalyticsDashboard(this, analytics);
+            dashboard.setVisible(true);
         });
 
-        nextMonth.addActionListener(e -> {
-            calendar.add(Calendar.MONTH, 1);
-            updateCalendar();
-        });
-
-        calendarPanel = new JPanel(new GridLayout(0, 7));
-        calendarPanel.setBackground(Color.WHITE);
+        prevMonth.addActionListener(e -> step(-1));
+        nextMonth.addActionListener(e -> step(1));
+        viewPicker.addActionListener(e -> showView((String) viewPicker.getSelectedItem()));
+
+        calendarPanel = new CalendarGrid(store, day -> openTaskDialog(focus.withDayOfMonth(day).toEpochDay()));
+        weekView = new WeekView(monthCache, this::openTaskDialog);
+        agendaView = new AgendaView(monthCache, this::openTaskDialog, top -> scrolledTo(VIEW_AGENDA, top));
+        scrollView = new MonthScrollView(monthCache, this::openTaskDialog, top -> scrolledTo(VIEW_SCROLL, top));
+        views.add(calendarPanel, VIEW_MONTH);
+        views.add(weekView, VIEW_WEEK);
+        views.add(agendaView, VIEW_AGENDA);
+        views.add(scrollView, VIEW_SCROLL);
         updateCalendar();
 
         mainPanel.add(headerPanel, BorderLayout.NORTH);
-        mainPanel.add(calendarPanel, BorderLayout.CENTER);
+        mainPanel.add(views, BorderLayout.CENTER);
         setContentPane(mainPanel);
+    }
+
+    void open(String username) {
+        setTitle("TeamTasker Calendar - " + username);
         setVisible(true);
 
+        calendarPanel.attach();
+        monthCache.attach();
+        if (store.paged()) monthCache.onLoaded(calendarPanel::refreshCells);
+        analytics.attach();
+        metrics.start(store);
         updateClockLabel();
         startClockThread();
-        new ReminderThread(taskMap).start();
+        reminders.start();
+        if (sync != null) {
+            sync.setStatusListener(s -> SwingUtilities.invokeLater(() -> syncLabel.setText("Sync: " + s)));
+            sync.start();
+        }
     }
 
-    private void updateClockLabel() {
-        clockLabel.setText(new SimpleDateFormat("HH:mm:ss").format(new Date()));
+    private JFileChooser taskFileChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("iCalendar (*.ics)", "ics"));
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("CSV (*.csv)", "csv"));
+        return chooser;
     }
 
-    private void startClockThread() {
-        new javax.swing.Timer(1000, e -> {
-            updateClockLabel();
-            updateCalendar(); // keep refreshing to show "Overdue"
-        }).start();
-    }
+    // Parses on a worker thread; the store takes the tasks in batches and the grid is refreshed
+    // once at the end instead of per batch.
+    private void importTasks(JButton importBtn) {
+        JFileChooser chooser = taskFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+
+        importBtn.setEnabled(false);
+        calendarPanel.beginBulkUpdate();
+        new SwingWorker<TaskImportExport.Result, Long>() {
+            @Override
+            protected TaskImportExport.Result doInBackground() throws IOException {
+                return TaskImportExport.importFile(file, store, n -> publish(n));
+            }
 
-    private void updateMonthLabel() {
-        monthLabel.setText(dateFormat.format(calendar.getTime()));
+            @Override
+            protected void process(List<Long> counts) {
+                statusLabel.setText("Importing... " + counts.get(counts.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                calendarPanel.endBulkUpdate();
+                importBtn.setEnabled(true);
+                statusLabel.setText("");
+                try {
+                    TaskImportExport.Result result = get();
+                    JOptionPane.showMessageDialog(CalendarUI.this, "Imported " + result.imported + " tasks"
+                            + (result.skipped > 0 ? " (" + result.skipped + " skipped)." : "."));
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(CalendarUI.this, "Import failed: " + e.getCause(),
+                            "Import", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
-    private void updateCalendar() {
-        calendarPanel.removeAll();
-        updateMonthLabel();
+    private void exportTasks(JButton exportBtn) {
+        JFileChooser chooser = taskFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
 
-        String[] days = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
-        for (String day : days) {
-            JLabel lbl = new JLabel(day, SwingConstants.CENTER);
-            lbl.setFont(new Font("Segoe UI", Font.BOLD, 14));
-            lbl.setForeground(new Color(0x2575fc));
-            calendarPanel.add(lbl);
-        }
+        exportBtn.setEnabled(false);
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws IOException {
+                return TaskImportExport.exportFile(file, store);
+            }
 
-        Calendar cal = (Calendar) calendar.clone();
-        cal.set(Calendar.DAY_OF_MONTH, 1);
-        int startDay = cal.get(Calendar.DAY_OF_WEEK) - 1;
-        int maxDay = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
+            @Override
+            protected void done() {
+                exportBtn.setEnabled(true);
+                try {
+                    JOptionPane.showMessageDialog(CalendarUI.this, "Exported " + get() + " tasks.");
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(CalendarUI.this, "Export failed: " + e.getCause(),
+                            "Export", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
 
-        for (int i = 0; i < startDay; i++) {
-            calendarPanel.add(new JLabel(""));
-        }
+    // Deletes every completed task before a chosen day in one batch (one per month when paged)
+    // and refreshes the grid once at the end. The scan and the delete both run on a worker; days
+    // without completed tasks are skipped by their counts, and a task edited between the two
+    // (unticked, say) is kept. Recurring series keep their history.
+    private void deleteCompletedBefore(JButton cleanUpBtn) {
+        LocalDate before = askDate(this, "Delete completed tasks before (yyyy-MM-dd):", CalendarClock.get().today());
+        if (before == null) return;
+        if (JOptionPane.showConfirmDialog(this, "Delete every completed task before " + before + "?",
+                "Clean Up", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) return;
+
+        cleanUpBtn.setEnabled(false);
+        calendarPanel.beginBulkUpdate();
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                int[] deleted = {0};
+                store.forEachPage(Long.MIN_VALUE, before.toEpochDay() - 1, days -> {
+                    TaskStore.Batch batch = new TaskStore.Batch();
+                    for (DayBucket day : days.values()) {
+                        if (day.done == 0) continue;
+                        for (Task t : day.tasks) {
+                            if (t.done) batch.removeIfUnchanged(t);
+                        }
+                    }
+                    deleted[0] += store.apply(batch);
+                });
+                return deleted[0];
+            }
 
-        for (int day = 1; day <= maxDay; day++) {
-            Calendar dateCal = (Calendar) calendar.clone();
-            dateCal.set(Calendar.DAY_OF_MONTH, day);
-            String key = new SimpleDateFormat("yyyy-MM-dd").format(dateCal.getTime());
-
-            JPanel dayPanel = new JPanel();
-            dayPanel.setLayout(new BoxLayout(dayPanel, BoxLayout.Y_AXIS));
-            dayPanel.setBackground(new Color(230, 240, 255));
-            dayPanel.setBorder(new LineBorder(new Color(0x2575fc), 1));
-            dayPanel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-
-            JLabel dayLabel = new JLabel(String.valueOf(day));
-            dayLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
-            dayLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-            dayLabel.setBorder(new EmptyBorder(6, 0, 2, 0));
-            dayPanel.add(dayLabel);
-
-            if (taskMap.containsKey(key)) {
-                long unfinished = taskMap.get(key).stream().filter(t -> !t.done).count();
-                long overdue = taskMap.get(key).stream().filter(t -> !t.done && isPastDue(t.text, key)).count();
-                if (unfinished > 0) {
-                    JLabel taskCountLabel = new JLabel("\uD83D\uDCCC " + unfinished + " Unfinished");
-                    taskCountLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
-                    taskCountLabel.setForeground(Color.DARK_GRAY);
-                    taskCountLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-                    taskCountLabel.setBorder(new EmptyBorder(2, 0, 0, 0));
-                    dayPanel.add(taskCountLabel);
-                }
-                if (overdue > 0) {
-                    JLabel overdueLabel = new JLabel("\u26A0 " + overdue + " Overdue");
-                    overdueLabel.setFont(new Font("Segoe UI", Font.BOLD, 10));
-                    overdueLabel.setForeground(Color.RED);
-                    overdueLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-                    overdueLabel.setBorder(new EmptyBorder(0, 0, 6, 0));
-                    dayPanel.add(overdueLabel);
+            @Override
+            protected void done() {
+                calendarPanel.endBulkUpdate();
+                cleanUpBtn.setEnabled(true);
+                try {
+                    int deleted = get();
+                    statusLabel.setText(deleted == 0 ? "No completed tasks before " + before + "."
+                            : "Deleted " + deleted + " tasks.");
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(CalendarUI.this, "Clean up failed: " + e.getCause(),
+                            "Clean Up", JOptionPane.ERROR_MESSAGE);
                 }
             }
+        }.execute();
+    }
 
-            int finalDay = day;
-            dayPanel.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    openTaskDialog(finalDay);
-                }
+    // Null when cancelled or not a date.
+    private static LocalDate askDate(Component parent, String question, LocalDate initial) {
+        Object answer = JOptionPane.showInputDialog(parent, question, "TeamTasker",
+                JOptionPane.QUESTION_MESSAGE, null, null, initial.toString());
+        if (answer == null) return null;
+        try {
+            return LocalDate.parse(answer.toString().trim());
+        } catch (java.time.format.DateTimeParseException e) {
+            JOptionPane.showMessageDialog(parent, "Not a date: " + answer, "TeamTasker", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
 
-                @Override
-                public void mouseEntered(MouseEvent e) {
-                    dayPanel.setBackground(new Color(210, 225, 250));
-                }
+    private void updateClockLabel() {
+        clockLabel.setText(CalendarClock.get().now().format(clockFormat));
+    }
 
-                @Override
-                public void mouseExited(MouseEvent e) {
-                    dayPanel.setBackground(new Color(230, 240, 255));
-                }
-            });
+    private void startClockThread() {
+        // only the clock ticks every second; the grid schedules its own overdue refreshes
+        new javax.swing.Timer(1000, e -> updateClockLabel()).start();
+    }
+
+    private void updateMonthLabel() {
+        monthLabel.setText(view.equals(VIEW_WEEK)
+                ? weekFormat.format(LocalDate.ofEpochDay(weekView.firstDay()))
+                : monthFormat.format(focus));
+    }
 
-            calendarPanel.add(dayPanel);
+    // Positions the current view on focus.
+    private void updateCalendar() {
+        switch (view) {
+            case VIEW_WEEK:
+                weekView.showWeek(focus);
+                break;
+            case VIEW_AGENDA:
+                agendaView.scrollTo(focus);
+                break;
+            case VIEW_SCROLL:
+                scrollView.scrollTo(focus);
+                break;
+            default:
+                calendarPanel.showMonth(YearMonth.from(focus));
+                // the grid reads the store directly; when paged this brings the month and its
+                // neighbours in, and the grid refreshes as they arrive
+                monthCache.prefetch(YearMonth.from(focus).minusMonths(1), YearMonth.from(focus).plusMonths(1));
+                break;
         }
+        updateMonthLabel();
+    }
 
-        calendarPanel.revalidate();
-        calendarPanel.repaint();
+    // The arrows page by week in the week view and by month everywhere else.
+    private void step(int delta) {
+        focus = view.equals(VIEW_WEEK) ? focus.plusWeeks(delta) : focus.plusMonths(delta).withDayOfMonth(1);
+        updateCalendar();
     }
 
-    private boolean isPastDue(String text, String taskDateKey) {
-        try {
-            Date taskDate = new SimpleDateFormat("yyyy-MM-dd").parse(taskDateKey);
-            Date today = new SimpleDateFormat("yyyy-MM-dd").parse(
-                    new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+    private void showView(String name) {
+        view = name;
+        viewCards.show(views, name);
+        // the scrolling views can only position themselves once laid out
+        SwingUtilities.invokeLater(this::updateCalendar);
+    }
 
-            if (taskDate.before(today)) {
-                return true;
-            }
+    // A scrolling view moved under the user's hand; keep focus and the label in step with it.
+    private void scrolledTo(String source, LocalDate top) {
+        if (!view.equals(source)) return;
+        focus = top;
+        updateMonthLabel();
+    }
 
-            if (taskDate.equals(today)) {
-                int dashIdx = text.indexOf('-');
-                int parenIdx = text.indexOf(')', dashIdx);
-                if (dashIdx != -1 && parenIdx != -1) {
-                    String endTime = text.substring(dashIdx + 1, parenIdx).trim();
-                    Date end = new SimpleDateFormat("HH:mm").parse(endTime);
-                    String nowTime = new SimpleDateFormat("HH:mm").format(new Date());
-                    Date now = new SimpleDateFormat("HH:mm").parse(nowTime);
-                    return now.after(end);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+    // Jumps to the task's day and opens it.
+    private void showTask(Task task) {
+        focus = task.date();
+        updateCalendar();
+        openTaskDialog(task.epochDay);
     }
 
-    private void openTaskDialog(int day) {
-        String key = getSelectedDate(day);
-        List<Task> tasks = taskMap.getOrDefault(key, new ArrayList<>());
+    private void openTaskDialog(long epochDay) {
+        String key = LocalDate.ofEpochDay(epochDay).toString();
+        DayTaskTableModel model = new DayTaskTableModel(store, epochDay);
 
         JDialog dialog = new JDialog(this, "Tasks on " + key, true);
-        dialog.setSize(500, 400);
+        dialog.setSize(680, 400);
         dialog.setLocationRelativeTo(this);
         dialog.setLayout(new BorderLayout());
 
-        JPanel taskPanel = new JPanel();
-        taskPanel.setLayout(new BoxLayout(taskPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(taskPanel);
+        JTable table = new JTable(model);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        table.setRowHeight(24);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        table.setDefaultRenderer(String.class, new TaskCellRenderer());
+        table.getColumnModel().getColumn(DayTaskTableModel.COL_DONE).setMaxWidth(50);
+        table.getColumnModel().getColumn(DayTaskTableModel.COL_TIME).setPreferredWidth(90);
+        table.getColumnModel().getColumn(DayTaskTableModel.COL_TIME).setMaxWidth(110);
+        JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createTitledBorder("Task List"));
 
-        for (Task task : tasks) {
-            JCheckBox checkBox = new JCheckBox(task.text);
-            checkBox.setSelected(task.done);
-            styleCheckbox(checkBox, task.done);
-
-            checkBox.addActionListener(e -> {
-                task.done = checkBox.isSelected();
-                styleCheckbox(checkBox, task.done);
-                updateCalendar();
-            });
-
-            taskPanel.add(checkBox);
-        }
-
         dialog.add(scrollPane, BorderLayout.CENTER);
 
         JPanel controls = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 10));
@@ -238,6 +388,8 @@ public class CalendarUI extends JFrame {
 
         JButton addBtn = new JButton("Add");
         JButton delBtn = new JButton("Delete Selected");
+        JButton moveBtn = new JButton("Move Selected");
+        JButton weekBtn = new JButton("Week Done");
 
         addBtn.setBackground(new Color(0x2575fc));
         addBtn.setForeground(Color.WHITE);
@@ -246,53 +398,105 @@ public class CalendarUI extends JFrame {
         delBtn.setBackground(new Color(0xB00020));
         delBtn.setForeground(Color.WHITE);
         delBtn.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        moveBtn.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        weekBtn.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        weekBtn.setToolTipText("Mark every task of this week done");
 
         controls.add(addBtn);
+        controls.add(moveBtn);
+        controls.add(weekBtn);
         controls.add(delBtn);
         dialog.add(controls, BorderLayout.SOUTH);
 
-        addBtn.addActionListener(_e -> {
-            String newTask = promptForTask(null);
-            if (newTask != null && !newTask.trim().isEmpty()) {
-                Task task = new Task(newTask, false);
-                tasks.add(task);
-                taskMap.put(key, tasks);
-                dialog.dispose();
-                openTaskDialog(day);
-                updateCalendar();
+        addBtn.addActionListener(_e -> promptForTask(epochDay));
+        weekBtn.addActionListener(_e -> markWeekDone(epochDay));
+
+        moveBtn.addActionListener(_e -> {
+            int[] selected = table.getSelectedRows();
+            if (selected.length == 0) return;
+            LocalDate to = askDate(dialog, "Move " + selected.length + " selected tasks to (yyyy-MM-dd):",
+                    LocalDate.ofEpochDay(epochDay).plusDays(1));
+            if (to == null || to.toEpochDay() == epochDay) return;
+            TaskStore.Batch batch = new TaskStore.Batch();
+            for (int row : selected) {
+                Task t = model.taskAt(table.convertRowIndexToModel(row));
+                if (store.rule(t.id) == null) {
+                    batch.move(t, to.toEpochDay());
+                } else {
+                    // an occurrence cannot leave its series: it is cancelled here and copied as a one-off
+                    batch.remove(t).add(new Task(store.newId(), t.title, t.description, to.toEpochDay(),
+                            t.startMinute, t.endMinute, t.done));
+                }
             }
+            store.apply(batch);
         });
 
         delBtn.addActionListener(_e -> {
-            Component[] comps = taskPanel.getComponents();
-            Iterator<Task> iter = tasks.iterator();
-            int i = 0;
-            while (iter.hasNext()) {
-                Task t = iter.next();
-                JCheckBox cb = (JCheckBox) comps[i++];
-                if (cb.isSelected() && JOptionPane.showConfirmDialog(dialog, "Delete task: \"" + t.text + "\"?", "Confirm", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
-                    iter.remove();
+            int[] selected = table.getSelectedRows();
+            if (selected.length == 0) return;
+            List<Task> doomed = new ArrayList<>(selected.length);
+            for (int row : selected) {
+                doomed.add(model.taskAt(table.convertRowIndexToModel(row)));
+            }
+            String question = doomed.size() == 1
+                    ? "Delete task: \"" + doomed.get(0).text() + "\"?"
+                    : "Delete " + doomed.size() + " selected tasks?";
+            List<RecurrenceRule> series = new ArrayList<>();
+            for (Task t : doomed) {
+                RecurrenceRule rule = store.rule(t.id);
+                if (rule != null) series.add(rule);
+            }
+            if (series.isEmpty()) {
+                if (JOptionPane.showConfirmDialog(dialog, question, "Confirm", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                    store.removeAll(doomed);
                 }
+                return;
+            }
+            String repeats = series.size() == 1 ? "It repeats: " + series.get(0).summary() + "." : "Some of them repeat.";
+            String[] options = {"Only this day", "Whole series", "Cancel"};
+            int choice = JOptionPane.showOptionDialog(dialog, question + "\n" + repeats, "Confirm",
+                    JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+            if (choice == 1) {
+                for (RecurrenceRule rule : series) store.removeRule(rule.id);
+                doomed.removeIf(t -> series.stream().anyMatch(r -> r.id == t.id));
             }
-            if (tasks.isEmpty()) taskMap.remove(key);
-            dialog.dispose();
-            openTaskDialog(day);
-            updateCalendar();
+            if (choice == 0 || choice == 1) store.removeAll(doomed);
         });
 
+        model.attach();
         dialog.setVisible(true);
+        model.detach();
     }
 
-    private String getSelectedDate(int day) {
-        Calendar cal = (Calendar) calendar.clone();
-        cal.set(Calendar.DAY_OF_MONTH, day);
-        return new SimpleDateFormat("yyyy-MM-dd").format(cal.getTime());
-    }
+    // Ticks every open task of the week around epochDay, in one batch. Weeks start on Sunday,
+    // as in the grid and the week view. The week is read on a worker, since its days may have
+    // to be paged in first.
+    private void markWeekDone(long epochDay) {
+        long sunday = epochDay - LocalDate.ofEpochDay(epochDay).getDayOfWeek().getValue() % 7;
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                store.ensureResident(sunday, sunday + 6);
+                TaskStore.Batch batch = new TaskStore.Batch();
+                for (long d = sunday; d < sunday + 7; d++) {
+                    for (Task t : store.tasksOn(d)) {
+                        if (!t.done) batch.update(t.withDone(true));
+                    }
+                }
+                store.apply(batch);
+                return null;
+            }
 
-    private void styleCheckbox(JCheckBox cb, boolean isDone) {
-        cb.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        cb.setForeground(isDone ? Color.GRAY : Color.BLACK);
-        cb.setText(isDone ? "<html><strike>" + cb.getText() + "</strike></html>" : cb.getText().replaceAll("<[^>]+>", ""));
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(CalendarUI.this, "Could not mark the week done: "
+                            + e.getCause(), "Week", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
     private void styleHeaderArrow(JButton btn) {
@@ -304,13 +508,25 @@ public class CalendarUI extends JFrame {
         btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
     }
 
-    private String promptForTask(String existing) {
+    // Asks for a task on epochDay and adds it, as a recurrence rule when a repeat is chosen.
+    private void promptForTask(long epochDay) {
         JTextField title = new JTextField();
         JTextField desc = new JTextField();
         JFormattedTextField start = new JFormattedTextField(new SimpleDateFormat("HH:mm"));
         JFormattedTextField end = new JFormattedTextField(new SimpleDateFormat("HH:mm"));
         start.setColumns(5);
         end.setColumns(5);
+        JComboBox<String> repeat = new JComboBox<>(new String[] {"Never", "Daily", "Weekly", "Monthly"});
+        JSpinner every = new JSpinner(new SpinnerNumberModel(1, 1, 99, 1));
+        JPanel weekdays = new JPanel(new GridLayout(1, 7));
+        JCheckBox[] dayBoxes = new JCheckBox[7];
+        String[] dayNames = {"M", "T", "W", "T", "F", "S", "S"};
+        for (int i = 0; i < 7; i++) {
+            dayBoxes[i] = new JCheckBox(dayNames[i], i == RecurrenceRule.weekday(epochDay));
+            weekdays.add(dayBoxes[i]);
+        }
+        JTextField until = new JTextField();
+        JTextField times = new JTextField();
 
         JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
         panel.setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -322,134 +538,102 @@ public class CalendarUI extends JFrame {
         panel.add(start);
         panel.add(new JLabel("End Time (HH:mm):"));
         panel.add(end);
+        panel.add(new JLabel("Repeat:"));
+        panel.add(repeat);
+        panel.add(new JLabel("Every (days/weeks/months):"));
+        panel.add(every);
+        panel.add(new JLabel("On (weekly):"));
+        panel.add(weekdays);
+        panel.add(new JLabel("Until (yyyy-MM-dd, optional):"));
+        panel.add(until);
+        panel.add(new JLabel("Times (optional):"));
+        panel.add(times);
 
         int result = JOptionPane.showConfirmDialog(this, panel, "Task Info", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
-        if (result == JOptionPane.OK_OPTION) {
-            return String.format("\uD83D\uDCCC %s (%s-%s): %s", title.getText(), start.getText(), end.getText(), desc.getText());
-        }
-        return null;
-    }
-
-    private static class Task {
-        String text;
-        boolean done;
-
-        Task(String text, boolean done) {
-            this.text = text;
-            this.done = done;
-        }
-    }
-
-    private static class ReminderThread extends Thread {
-    private final Map<String, List<Task>> taskMap;
-    private final Set<String> remindedTasks = new HashSet<>();
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-
-    public ReminderThread(Map<String, List<Task>> taskMap) {
-        this.taskMap = taskMap;
-    }
-
-    @Override
-    public void run() {
-        while (true) {
-            try {
-                Thread.sleep(1000);
-                String nowTime = new SimpleDateFormat("HH:mm:ss").format(new Date());
-
-                Calendar todayCal = Calendar.getInstance();
-                String today = dateFormat.format(todayCal.getTime());
-
-                // 🔔 1. Same-Day Reminders (at task time)
-                List<Task> todayTasks = taskMap.getOrDefault(today, Collections.emptyList());
-                for (Task task : todayTasks) {
-                    if (task.done) continue;
-                String key = "TODAY" + today + task.text;
-                    if (!remindedTasks.contains(key)) {
-                    remindedTasks.add(key);
-                String title = extractTaskTitle(task.text);
-                    showReminder("🟢 Task Due Today", "Don't forget to do: \"" + title + "\" today.");
+        if (result != JOptionPane.OK_OPTION) return;
+        int startMinute = Task.parseMinute(start.getText());
+        int endMinute = Task.parseMinute(end.getText());
+        if (repeat.getSelectedIndex() == 0) {
+            if (startMinute != Task.NO_TIME && endMinute > startMinute) {
+                int slot = resolveOverlap(epochDay, startMinute, endMinute);
+                if (slot == Task.NO_TIME) return;
+                endMinute += slot - startMinute;
+                startMinute = slot;
             }
+            store.add(new Task(store.newId(), title.getText(), desc.getText(), epochDay, startMinute, endMinute, false));
+            return;
         }
-
-                // 📅 2. Tomorrow Reminders (advance notice)
-                Calendar tomorrowCal = (Calendar) todayCal.clone();
-                tomorrowCal.add(Calendar.DAY_OF_YEAR, 1);
-                String tomorrow = dateFormat.format(tomorrowCal.getTime());
-
-                List<Task> tomorrowTasks = taskMap.getOrDefault(tomorrow, Collections.emptyList());
-                for (Task task : tomorrowTasks) {
-                    String key = "TMR" + tomorrow + task.text;
-                    if (!remindedTasks.contains(key)) {
-                        remindedTasks.add(key);
-                        showReminder("📅 Upcoming Task (Tomorrow)", task.text);
-                    }
-                }
-
-                // ⚠️ 3. Overdue Yesterday Reminders
-                Calendar yesterdayCal = (Calendar) todayCal.clone();
-                yesterdayCal.add(Calendar.DAY_OF_YEAR, -1);
-                String yesterday = dateFormat.format(yesterdayCal.getTime());
-
-                List<Task> yesterdayTasks = taskMap.getOrDefault(yesterday, Collections.emptyList());
-                for (Task task : yesterdayTasks) {
-                    if (task.done) continue;
-                    String key = "OVD" + yesterday + task.text;
-                    if (!remindedTasks.contains(key)) {
-                        remindedTasks.add(key);
-                        String title = extractTaskTitle(task.text);
-                        showReminder("⚠️ Task Overdue!", "This task \"" + title + "\" is overdue (yesterday)");
-                    }
-                }
-
-            } catch (InterruptedException ignored) {}
+        long untilDay;
+        int count;
+        try {
+            untilDay = until.getText().trim().isEmpty() ? RecurrenceRule.NO_END
+                    : LocalDate.parse(until.getText().trim()).toEpochDay();
+            count = times.getText().trim().isEmpty() ? 0 : Integer.parseInt(times.getText().trim());
+            if (count < 0) throw new NumberFormatException(times.getText());
+        } catch (java.time.format.DateTimeParseException | NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Invalid end date or count: " + e.getMessage(),
+                    "Task Info", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int mask = 0;
+        for (int i = 0; i < 7; i++) {
+            if (dayBoxes[i].isSelected()) mask |= 1 << i;
         }
+        RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.values()[repeat.getSelectedIndex() - 1];
+        store.putRule(new RecurrenceRule(store.newId(), title.getText(), desc.getText(), startMinute, endMinute,
+                epochDay, frequency, (Integer) every.getValue(), mask, untilDay, count));
     }
 
-    private String extractStartTime(String text) {
-        try {
-            int startIdx = text.indexOf('(');
-            int endIdx = text.indexOf('-', startIdx);
-            if (startIdx != -1 && endIdx != -1) {
-                return text.substring(startIdx + 1, endIdx).trim();
-            }
-        } catch (Exception ignored) {}
-        return null;
+    // Warns when [start, end) overlaps tasks already on the day. Returns the start to use: start
+    // itself, the next free slot that fits the same duration, or Task.NO_TIME to cancel.
+    private int resolveOverlap(long epochDay, int start, int end) {
+        DayBucket day = store.bucket(epochDay);
+        List<Task> overlaps = day.overlapping(start, end);
+        if (overlaps.isEmpty()) return start;
+        StringBuilder msg = new StringBuilder("This overlaps:\n");
+        for (Task t : overlaps.subList(0, Math.min(overlaps.size(), 8))) msg.append("  ").append(t.line()).append('\n');
+        if (overlaps.size() > 8) msg.append("  and ").append(overlaps.size() - 8).append(" more\n");
+        int free = day.nextFreeSlot(start, end - start);
+        List<String> options = new ArrayList<>(Arrays.asList("Add anyway", "Cancel"));
+        if (free != Task.NO_TIME) {
+            options.add(1, "Move to " + Task.formatMinute(free));
+        } else {
+            msg.append("\nNo free slot of that length later today.");
+        }
+        int choice = JOptionPane.showOptionDialog(this, msg.toString(), "Time Conflict", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.WARNING_MESSAGE, null, options.toArray(), options.get(0));
+        if (choice == 0) return start;
+        if (free != Task.NO_TIME && choice == 1) return free;
+        return Task.NO_TIME;
     }
 
-    private String extractTaskTitle(String text) {
-        try {
-            if (text.contains("📌 ")) {
-                text = text.substring(text.indexOf("📌 ") + 1);
-            } else if (text.contains("📍 ")) {
-                text = text.substring(text.indexOf("📍 ") + 2);
-            } else if (text.contains("📎 ") || text.contains("📅 ") || text.contains("📋 ")) {
-                text = text.substring(text.indexOf(" ") + 1);
-            }
-            int start = text.indexOf("📌 ") != -1 ? text.indexOf("📌 ") + 2 : text.indexOf("📅 ") + 2;
-            int paren = text.indexOf("(", start);
-            if (paren != -1) {
-                return text.substring(2, paren).trim();
-            }
-        } catch (Exception ignored) {}
-        try {
-            int pinInx = text.indexOf("📌");
-            int openParen = text.indexOf("(", pinInx);
-            if (pinInx != -1 && openParen != -1) {
-                return text.substring(pinInx + 2, openParen).trim();
+    // Greys out and strikes through the text columns of completed tasks; flags overlapping times.
+    private static class TaskCellRenderer extends javax.swing.table.DefaultTableCellRenderer {
+        private static final Font PLAIN = new Font("Segoe UI", Font.PLAIN, 14);
+        private static final Font STRUCK = PLAIN.deriveFont(
+                Collections.singletonMap(java.awt.font.TextAttribute.STRIKETHROUGH, java.awt.font.TextAttribute.STRIKETHROUGH_ON));
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            DayTaskTableModel model = (DayTaskTableModel) table.getModel();
+            int modelRow = table.convertRowIndexToModel(row);
+            Task task = model.taskAt(modelRow);
+            setFont(task.done ? STRUCK : PLAIN);
+            if (!isSelected) setForeground(task.done ? Color.GRAY : Color.BLACK);
+            if (table.convertColumnIndexToModel(column) == DayTaskTableModel.COL_TIME && model.hasConflict(modelRow)) {
+                setText("\u26A0 " + value);
+                setToolTipText("Overlaps another task");
+                if (!isSelected && !task.done) setForeground(CalendarGrid.CONFLICT_FG);
+            } else {
+                setToolTipText(null);
             }
-        } catch (Exception ignored) {}
-        return text;
-    }
-
-    private void showReminder(String title, String message) {
-        SwingUtilities.invokeLater(() ->
-            JOptionPane.showMessageDialog(null, message, title, JOptionPane.WARNING_MESSAGE)
-        );
+            return this;
+        }
     }
-}
-
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new CalendarUI("admin"));
+        StartupPipeline.start().calendar().thenAcceptAsync(ui -> ui.open("admin"), SwingUtilities::invokeLater);
     }
 }
@@ -0,0 +1,79 @@
+import java.util.*;
+import java.util.List;
+
+// One day's tasks packed into primitive columns: ids, start/end minutes as shorts, a done
+// bitset, and every title and description concatenated into a single String (Latin-1 text is
+// stored one byte per char by the JVM) with end offsets. The day itself is stored once.
+//
+// Per task that is about 20 bytes plus the text, against roughly 130 for a Task object with its
+// two Strings and a list slot, and a handful of objects per day instead of three per task.
+// get() builds a fresh Task on each call, so readers should not rely on identity; the store
+// matches tasks by id throughout.
+final class CompactTaskList extends AbstractList<Task> implements RandomAccess {
+    private final long epochDay;
+    private final long[] ids;
+    private final short[] starts;
+    private final short[] ends;
+    private final BitSet done;
+    private final String text;
+    private final int[] textEnds; // title end, description end, per task
+
+    private CompactTaskList(long epochDay, long[] ids, short[] starts, short[] ends, BitSet done,
+                            String text, int[] textEnds) {
+        this.epochDay = epochDay;
+        this.ids = ids;
+        this.starts = starts;
+        this.ends = ends;
+        this.done = done;
+        this.text = text;
+        this.textEnds = textEnds;
+    }
+
+    // Packs tasks, or returns null when they do not share one day (only buckets are packed).
+    static CompactTaskList pack(List<Task> tasks) {
+        int n = tasks.size();
+        long day = tasks.get(0).epochDay;
+        long[] ids = new long[n];
+        short[] starts = new short[n];
+        short[] ends = new short[n];
+        BitSet done = new BitSet(n);
+        int[] textEnds = new int[2 * n];
+        int chars = 0;
+        for (Task t : tasks) chars += t.title.length() + t.description.length();
+        StringBuilder text = new StringBuilder(chars);
+        for (int i = 0; i < n; i++) {
+            Task t = tasks.get(i);
+            if (t.epochDay != day) return null;
+            ids[i] = t.id;
+            starts[i] = (short) t.startMinute;
+            ends[i] = (short) t.endMinute;
+            if (t.done) done.set(i);
+            text.append(t.title);
+            textEnds[2 * i] = text.length();
+            text.append(t.description);
+            textEnds[2 * i + 1] = text.length();
+        }
+        return new CompactTaskList(day, ids, starts, ends, done, text.toString(), textEnds);
+    }
+
+    @Override
+    public Task get(int index) {
+        if (index < 0 || index >= ids.length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + ids.length);
+        int from = index == 0 ? 0 : textEnds[2 * index - 1];
+        int titleEnd = textEnds[2 * index];
+        return new Task(ids[index], text.substring(from, titleEnd), text.substring(titleEnd, textEnds[2 * index + 1]),
+                epochDay, starts[index], ends[index], done.get(index));
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    // Rough retained size for metrics, counted the same way as DayBucket.estimatedBytes.
+    long estimatedBytes() {
+        int n = ids.length;
+        return 40 + 16 + 8L * n + 2 * (16 + 2L * n) + 24 + 8L * ((n + 63) / 64) + 40 + text.length()
+                + 16 + 8L * n;
+    }
+}
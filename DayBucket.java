@@ -0,0 +1,203 @@
+import java.util.*;
+import java.util.List;
+
+// Immutable contents of one day plus the aggregates the calendar cells need. A new bucket is
+// built whenever the day is edited, so readers get counts without scanning the tasks.
+//
+// Timed tasks are also indexed by interval for conflict checks: sorted by start, with the
+// running maximum of their ends. Everything that overlaps [s, e) starts before e, and whether
+// any of those ends after s is one look at the running maximum, so an overlap test is a binary
+// search. The index is built on first use, so days that are written but never checked (bulk
+// imports, days off screen) do not pay for it.
+//
+// With -Dteamtasker.compactStore=true stored buckets keep their tasks packed in a
+// CompactTaskList, trading an allocation per task read for several times less heap on large
+// calendars. Buckets built per read (occurrences merged in) are never packed.
+final class DayBucket {
+    private static final int DAY_MINUTES = 24 * 60;
+    static final boolean COMPACT = Boolean.getBoolean("teamtasker.compactStore");
+
+    static final DayBucket EMPTY = new DayBucket(Collections.emptyList(), Collections.emptyList());
+
+    final List<Task> tasks;
+    final int unfinished;
+    final int done;
+    // End minutes of the unfinished timed tasks, ascending; drives today's overdue count.
+    private final int[] unfinishedEnds;
+    private volatile Intervals intervals;
+
+    // The aggregates come from source, which holds the same tasks as the (possibly packed) list.
+    private DayBucket(List<Task> tasks, List<Task> source) {
+        this.tasks = tasks;
+        int open = 0;
+        int timed = 0;
+        for (Task t : source) {
+            if (t.done) continue;
+            open++;
+            if (t.endMinute != Task.NO_TIME) timed++;
+        }
+        int[] ends = new int[timed];
+        int i = 0;
+        for (Task t : source) {
+            if (!t.done && t.endMinute != Task.NO_TIME) ends[i++] = t.endMinute;
+        }
+        Arrays.sort(ends);
+        this.unfinished = open;
+        this.done = source.size() - open;
+        this.unfinishedEnds = ends;
+    }
+
+    static DayBucket of(List<Task> tasks) {
+        if (tasks.isEmpty()) return EMPTY;
+        if (COMPACT) {
+            CompactTaskList packed = CompactTaskList.pack(tasks);
+            if (packed != null) return new DayBucket(packed, tasks);
+        }
+        return new DayBucket(Collections.unmodifiableList(tasks), tasks);
+    }
+
+    // For buckets built per read and then dropped; packing them would only cost time.
+    static DayBucket view(List<Task> tasks) {
+        return tasks.isEmpty() ? EMPTY : new DayBucket(Collections.unmodifiableList(tasks), tasks);
+    }
+
+    int size() {
+        return tasks.size();
+    }
+
+    // Same rule as Task.isPastDue, answered with a binary search instead of a scan.
+    int overdue(long epochDay, long todayEpochDay, int nowMinute) {
+        if (epochDay < todayEpochDay) return unfinished;
+        if (epochDay > todayEpochDay) return 0;
+        return lowerBound(nowMinute);
+    }
+
+    // The first unfinished end minute at or after minute, or Task.NO_TIME.
+    int nextEndAtOrAfter(int minute) {
+        int idx = lowerBound(minute);
+        return idx < unfinishedEnds.length ? unfinishedEnds[idx] : Task.NO_TIME;
+    }
+
+    // Rough retained size for metrics: bucket, list and arrays, and each task with its strings
+    // (compressed oops, Latin-1 text).
+    long estimatedBytes() {
+        if (tasks instanceof CompactTaskList) {
+            return 32 + 16 + 4L * unfinishedEnds.length + ((CompactTaskList) tasks).estimatedBytes();
+        }
+        long bytes = 32 + 16 + 24 + 16 + 4L * tasks.size() + 16 + 4L * unfinishedEnds.length;
+        for (Task t : tasks) {
+            bytes += 48 + 40 + t.title.length() + 40 + t.description.length();
+        }
+        return bytes;
+    }
+
+    // How many timed tasks overlap at least one other.
+    int conflicts() {
+        return intervals().conflicted;
+    }
+
+    // Timed tasks overlapping [start, end), in start order.
+    List<Task> overlapping(int start, int end) {
+        Intervals iv = intervals();
+        List<Task> out = new ArrayList<>();
+        // only tasks starting before end can overlap; walk back while one of them may reach start
+        for (int j = iv.startsBefore(end) - 1; j >= 0 && iv.maxEnd[j] > start; j--) {
+            if (iv.ends[j] > start) out.add(tasks.get(iv.order[j]));
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    // Whether task overlaps another timed task of this day.
+    boolean hasConflict(Task task) {
+        if (task.startMinute == Task.NO_TIME || task.endMinute <= task.startMinute) return false;
+        Intervals iv = intervals();
+        for (int j = iv.startsBefore(task.endMinute) - 1; j >= 0 && iv.maxEnd[j] > task.startMinute; j--) {
+            if (iv.ends[j] > task.startMinute && tasks.get(iv.order[j]).id != task.id) return true;
+        }
+        return false;
+    }
+
+    // The earliest minute at or after from where duration minutes fit before midnight without
+    // overlapping a timed task, or Task.NO_TIME.
+    int nextFreeSlot(int from, int duration) {
+        Intervals iv = intervals();
+        int i = iv.startsBefore(from + 1);
+        int t = i > 0 ? Math.max(from, iv.maxEnd[i - 1]) : from;
+        // t only moves forward, past every interval that starts inside the candidate slot
+        while (i < iv.starts.length && iv.starts[i] < t + duration) {
+            t = Math.max(t, iv.ends[i]);
+            i++;
+        }
+        return t + duration <= DAY_MINUTES ? t : Task.NO_TIME;
+    }
+
+    private Intervals intervals() {
+        Intervals iv = intervals;
+        if (iv == null) intervals = iv = new Intervals(tasks);
+        return iv;
+    }
+
+    // Timed tasks with a positive length, sorted by start.
+    private static final class Intervals {
+        final int[] order; // index into tasks
+        final int[] starts;
+        final int[] ends;
+        final int[] maxEnd; // maxEnd[i] = max(ends[0..i])
+        final int conflicted;
+
+        Intervals(List<Task> tasks) {
+            int n = 0;
+            long[] keys = new long[tasks.size()];
+            int[] endOf = new int[tasks.size()]; // one pass over tasks; packed lists build a Task per get
+            for (int i = 0; i < tasks.size(); i++) {
+                Task t = tasks.get(i);
+                endOf[i] = t.endMinute;
+                if (t.startMinute != Task.NO_TIME && t.endMinute > t.startMinute) {
+                    keys[n++] = (long) t.startMinute << 32 | i;
+                }
+            }
+            Arrays.sort(keys, 0, n);
+            order = new int[n];
+            starts = new int[n];
+            ends = new int[n];
+            maxEnd = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = (int) keys[i];
+                starts[i] = (int) (keys[i] >>> 32);
+                ends[i] = endOf[order[i]];
+                maxEnd[i] = i == 0 ? ends[i] : Math.max(maxEnd[i - 1], ends[i]);
+            }
+            // a task overlaps an earlier one if it starts before their latest end, and a later
+            // one if the very next start falls before its own end
+            int c = 0;
+            for (int i = 0; i < n; i++) {
+                if ((i > 0 && starts[i] < maxEnd[i - 1]) || (i + 1 < n && starts[i + 1] < ends[i])) c++;
+            }
+            conflicted = c;
+        }
+
+        // Number of intervals starting before minute.
+        int startsBefore(int minute) {
+            int lo = 0;
+            int hi = starts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < minute) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private int lowerBound(int minute) {
+        int lo = 0;
+        int hi = unfinishedEnds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (unfinishedEnds[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
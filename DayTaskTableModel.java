@@ -0,0 +1,157 @@
+import java.util.*;
+import java.util.List;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+
+// Rows of one day's tasks for the day dialog. The model follows the store itself, so adds,
+// edits and deletes from anywhere update the open table in place.
+class DayTaskTableModel extends AbstractTableModel implements TaskStore.Listener {
+    static final int COL_DONE = 0;
+    static final int COL_TIME = 1;
+    static final int COL_TITLE = 2;
+    static final int COL_DESCRIPTION = 3;
+
+    private static final String[] COLUMNS = {"Done", "Time", "Title", "Description"};
+
+    private final TaskStore store;
+    private final long epochDay;
+    private final List<Task> rows;
+    private DayBucket day; // for overlap checks; replaced whenever the rows change
+
+    DayTaskTableModel(TaskStore store, long epochDay) {
+        this.store = store;
+        this.epochDay = epochDay;
+        this.day = store.bucket(epochDay);
+        this.rows = new ArrayList<>(day.tasks);
+    }
+
+    void attach() {
+        store.addListener(this);
+        // pick up anything that changed between construction and attaching
+        SwingUtilities.invokeLater(this::reload);
+    }
+
+    void detach() {
+        store.removeListener(this);
+    }
+
+    Task taskAt(int row) {
+        return rows.get(row);
+    }
+
+    // Whether the task in row overlaps another timed task of the day.
+    boolean hasConflict(int row) {
+        return day.hasConflict(rows.get(row));
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == COL_DONE ? Boolean.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == COL_DONE;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Task t = rows.get(row);
+        switch (column) {
+            case COL_DONE:
+                return t.done;
+            case COL_TIME:
+                return t.startMinute == Task.NO_TIME && t.endMinute == Task.NO_TIME
+                        ? "" : Task.formatMinute(t.startMinute) + "-" + Task.formatMinute(t.endMinute);
+            case COL_TITLE:
+                return t.title;
+            default:
+                return t.description;
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column != COL_DONE) return;
+        Task latest = store.find(epochDay, rows.get(row).id);
+        if (latest != null) store.update(latest.withDone((Boolean) value));
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        List<TaskChange> mine = null;
+        for (TaskChange change : changes) {
+            if (change.isRuleChange()) {
+                SwingUtilities.invokeLater(this::reload);
+                return;
+            }
+            if (change.epochDay() == epochDay
+                    || (change.before != null && change.before.epochDay == epochDay)) {
+                if (mine == null) mine = new ArrayList<>();
+                mine.add(change);
+            }
+        }
+        if (mine != null) {
+            List<TaskChange> apply = mine;
+            SwingUtilities.invokeLater(() -> apply(apply));
+        }
+    }
+
+    private void apply(List<TaskChange> changes) {
+        if (changes.size() > 32) {
+            reload();
+            return;
+        }
+        day = store.bucket(epochDay);
+        for (TaskChange change : changes) {
+            int idx = change.before == null ? -1 : indexOf(change.before.id);
+            Task after = change.after != null && change.after.epochDay == epochDay ? change.after : null;
+            if (after != null && idx == -1) {
+                idx = indexOf(after.id);
+            }
+            if (after == null) {
+                if (idx != -1) {
+                    rows.remove(idx);
+                    fireTableRowsDeleted(idx, idx);
+                }
+            } else if (idx == -1) {
+                rows.add(after);
+                fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+            } else {
+                rows.set(idx, after);
+                fireTableRowsUpdated(idx, idx);
+            }
+        }
+        // an edit can start or end an overlap with rows it did not touch
+        fireTableChanged(new javax.swing.event.TableModelEvent(this, 0, Integer.MAX_VALUE, COL_TIME));
+    }
+
+    private void reload() {
+        day = store.bucket(epochDay);
+        rows.clear();
+        rows.addAll(day.tasks);
+        fireTableDataChanged();
+    }
+
+    private int indexOf(long id) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).id == id) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free histogram with power-of-two buckets: bucket i holds values in [2^(i-1), 2^i).
+// Cheap enough to record on the EDT; percentiles are reported as the bucket's upper bound.
+class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(long value) {
+        if (value < 0) value = 0;
+        counts[64 - Long.numberOfLeadingZeros(value)].increment();
+        total.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    long count() {
+        return total.sum();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    long mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+    long percentile(double p) {
+        long n = total.sum();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(p * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i].sum();
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (LongAdder c : counts) c.reset();
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // Non-empty buckets as "<=bound:count" pairs, values divided by scale (e.g. 1000 for us).
+    String format(long scale) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts[i].sum();
+            if (c == 0) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append("<=").append(upperBound(i) / scale).append(':').append(c);
+        }
+        return sb.length() == 0 ? "empty" : sb.toString();
+    }
+
+    String summary(long scale) {
+        return String.format("n=%d mean=%d p50=%d p90=%d p99=%d max=%d", count(), mean() / scale,
+                percentile(0.50) / scale, percentile(0.90) / scale, percentile(0.99) / scale, max() / scale);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -1,16 +1,22 @@
 import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
 
 class LoginScreen extends JFrame {
     private final JTextField userField;
     private final JPasswordField passField;
     private final JLabel feedback;
+    private final JButton loginButton;
+    private final StartupPipeline startup;
     private final String USERNAME = "admin";
     private final String PASSWORD = "admin123";
 
-    public LoginScreen() {
+    public LoginScreen(StartupPipeline startup) {
+        this.startup = startup;
         setTitle("TeamTasker Login");
         setSize(480, 520);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -18,12 +24,14 @@ class LoginScreen extends JFrame {
         setUndecorated(true);
 
         JPanel bg = new JPanel() {
+            private final PaintCache gradient = new PaintCache(Transparency.OPAQUE);
+
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                GradientPaint gp = new GradientPaint(0, 0, new Color(0x6a11cb), 0, getHeight(), new Color(0x2575fc));
-                g2.setPaint(gp);
-                g2.fillRect(0, 0, getWidth(), getHeight());
+                gradient.paint(this, g, getWidth(), getHeight(), g2 -> {
+                    g2.setPaint(new GradientPaint(0, 0, new Color(0x6a11cb), 0, getHeight(), new Color(0x2575fc)));
+                    g2.fillRect(0, 0, getWidth(), getHeight());
+                });
             }
         };
         bg.setLayout(new GridBagLayout());
@@ -33,7 +41,7 @@ class LoginScreen extends JFrame {
         card.setPreferredSize(new Dimension(350, 420));
         card.setBorder(new EmptyBorder(32, 32, 32, 32));
 
-        JLabel logo = new JLabel(new ImageIcon(drawLogo(64, 64)));
+        JLabel logo = new JLabel(new LogoIcon(64, 64));
         logo.setAlignmentX(Component.CENTER_ALIGNMENT);
         card.add(logo);
 
@@ -58,7 +66,7 @@ class LoginScreen extends JFrame {
         showPass.setOpaque(false);
         showPass.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         showPass.setAlignmentX(Component.CENTER_ALIGNMENT);
-        showPass.addActionListener(_e -> passField.setEchoChar(showPass.isSelected() ? (char) 0 : '•'));
+        showPass.addActionListener(_e -> passField.setEchoChar(showPass.isSelected() ? (char) 0 : '\u2022'));
         card.add(showPass);
 
         card.add(Box.createVerticalStrut(16));
@@ -68,7 +76,7 @@ class LoginScreen extends JFrame {
         feedback.setAlignmentX(Component.CENTER_ALIGNMENT);
         card.add(feedback);
 
-        JButton loginButton = new JButton("Login");
+        loginButton = new JButton("Login");
         styleButton(loginButton, new Color(0x2575fc));
         loginButton.setFont(new Font("Segoe UI", Font.BOLD, 18));
         loginButton.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -76,7 +84,7 @@ class LoginScreen extends JFrame {
         card.add(Box.createVerticalStrut(12));
         card.add(loginButton);
 
-        JButton closeBtn = new JButton("×");
+        JButton closeBtn = new JButton("\u00D7");
         closeBtn.setFont(new Font("Segoe UI", Font.BOLD, 18));
         closeBtn.setForeground(new Color(0x2575fc));
         closeBtn.setBackground(new Color(0, 0, 0, 0));
@@ -93,15 +101,43 @@ class LoginScreen extends JFrame {
         setVisible(true);
     }
 
+    // Checks the credentials on a worker thread, which then waits for the calendar the startup
+    // pipeline is building, so the EDT stays free and the calendar shows as soon as it can.
     private void authenticate() {
         String user = userField.getText();
-        String pass = new String(passField.getPassword());
-        if (user.equals(USERNAME) && pass.equals(PASSWORD)) {
-            new CalendarUI(user);
-            dispose();
-        } else {
-            feedback.setText("Invalid username or password.");
-        }
+        char[] pass = passField.getPassword();
+        loginButton.setEnabled(false);
+        feedback.setText(" ");
+        new SwingWorker<CalendarUI, Void>() {
+            @Override
+            protected CalendarUI doInBackground() throws Exception {
+                boolean ok = matches(user, USERNAME) & matches(new String(pass), PASSWORD);
+                Arrays.fill(pass, '\0');
+                return ok ? startup.calendar().get() : null;
+            }
+
+            @Override
+            protected void done() {
+                loginButton.setEnabled(true);
+                try {
+                    CalendarUI calendar = get();
+                    if (calendar == null) {
+                        feedback.setText("Invalid username or password.");
+                        return;
+                    }
+                    calendar.open(user);
+                    dispose();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    feedback.setText("TeamTasker could not start: " + e.getCause());
+                }
+            }
+        }.execute();
+    }
+
+    // Constant-time comparison, so response time does not reveal how much of a guess was right.
+    private static boolean matches(String given, String expected) {
+        return MessageDigest.isEqual(given.getBytes(StandardCharsets.UTF_8), expected.getBytes(StandardCharsets.UTF_8));
     }
 
     private void styleField(JTextField field, String placeholder) {
@@ -126,20 +162,47 @@ class LoginScreen extends JFrame {
         btn.setPreferredSize(new Dimension(160, 40));
     }
 
-    private Image drawLogo(int w, int h) {
-        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = img.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g.setColor(new Color(0x2575fc));
-        g.fillOval(0, 0, w, h);
-        g.setColor(Color.WHITE);
-        g.setFont(new Font("Segoe UI", Font.BOLD, w / 2));
-        FontMetrics fm = g.getFontMetrics();
-        String s = "T";
-        int sw = fm.stringWidth(s);
-        int sh = fm.getAscent();
-        g.drawString(s, (w - sw) / 2, (h + sh) / 2 - 4);
-        g.dispose();
-        return img;
+    // Paints the logo through a PaintCache, so it is drawn once per screen scale and stays
+    // sharp on HiDPI displays instead of being upscaled from a 1x bitmap.
+    private static class LogoIcon implements Icon {
+        private final int w;
+        private final int h;
+        private final PaintCache cache = new PaintCache(Transparency.TRANSLUCENT);
+
+        LogoIcon(int w, int h) {
+            this.w = w;
+            this.h = h;
+        }
+
+        @Override
+        public int getIconWidth() {
+            return w;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return h;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.translate(x, y);
+            cache.paint(c, g, w, h, this::drawLogo);
+            g.translate(-x, -y);
+        }
+
+        private void drawLogo(Graphics2D g) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(new Color(0x2575fc));
+            g.fillOval(0, 0, w, h);
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Segoe UI", Font.BOLD, w / 2));
+            FontMetrics fm = g.getFontMetrics();
+            String s = "T";
+            int sw = fm.stringWidth(s);
+            int sh = fm.getAscent();
+            g.drawString(s, (w - sw) / 2, (h + sh) / 2 - 4);
+        }
     }
 }
@@ -0,0 +1,120 @@
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Day buckets of whole months for the scrolling views, loaded on a background thread so the
+// EDT never expands recurring tasks or walks the store while painting. bucket() answers from
+// the cache or returns null and queues the month; views ask for the months around what is
+// visible with prefetch() and repaint when onLoaded fires. Edits reload the cached months
+// they touch in place, so a view never drops back to a placeholder for a day it has shown.
+// When the store is paged, loading a month here is what brings it in from disk.
+class MonthCache implements TaskStore.Listener {
+    // no point caching more months than the pager keeps resident
+    private static final int CAPACITY = MonthPager.residentMonths() > 0
+            ? Math.min(48, MonthPager.residentMonths()) : 48;
+
+    private final TaskStore store;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "month-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<YearMonth, DayBucket[]> months = Collections.synchronizedMap(
+            new LinkedHashMap<YearMonth, DayBucket[]>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<YearMonth, DayBucket[]> eldest) {
+                    return size() > CAPACITY;
+                }
+            });
+    private final Set<YearMonth> loading = ConcurrentHashMap.newKeySet();
+    private final Set<YearMonth> dirty = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> loadListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean notifyQueued = new AtomicBoolean();
+
+    MonthCache(TaskStore store) {
+        this.store = store;
+    }
+
+    void attach() {
+        store.addListener(this);
+    }
+
+    // Runs on the EDT after one or more months finished loading.
+    void onLoaded(Runnable listener) {
+        loadListeners.add(listener);
+    }
+
+    // The day's bucket if its month is cached, else null after queueing the month.
+    DayBucket bucket(long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        DayBucket[] month = months.get(YearMonth.from(date));
+        if (month != null) return month[date.getDayOfMonth() - 1];
+        request(YearMonth.from(date));
+        return null;
+    }
+
+    // Queues every month in [from, to] that is not cached yet, nearest to from first.
+    void prefetch(YearMonth from, YearMonth to) {
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            if (!months.containsKey(m)) request(m);
+        }
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        for (TaskChange change : changes) {
+            if (change.isRuleChange()) {
+                List<YearMonth> cached;
+                synchronized (months) {
+                    cached = new ArrayList<>(months.keySet());
+                }
+                for (YearMonth m : cached) reload(m);
+                return;
+            }
+            reload(YearMonth.from(LocalDate.ofEpochDay(change.epochDay())));
+            if (change.before != null && change.before.epochDay != change.epochDay()) {
+                reload(YearMonth.from(LocalDate.ofEpochDay(change.before.epochDay)));
+            }
+        }
+    }
+
+    // A month still on its first load has no cached copy yet but may already have read the
+    // edited day, so it is marked dirty too. load() puts the month before it stops loading it,
+    // so there is no gap between the two checks.
+    private void reload(YearMonth month) {
+        if (!months.containsKey(month) && !loading.contains(month)) return;
+        dirty.add(month);
+        request(month);
+    }
+
+    private void request(YearMonth month) {
+        if (loading.add(month)) loader.execute(() -> load(month));
+    }
+
+    // An edit that lands while the month is being read marks it dirty again, and the loop
+    // reads it once more, so the cached copy is never older than the last edit.
+    private void load(YearMonth month) {
+        do {
+            dirty.remove(month);
+            DayBucket[] days = new DayBucket[month.lengthOfMonth()];
+            long first = month.atDay(1).toEpochDay();
+            store.ensureResident(first, first + days.length - 1);
+            for (int i = 0; i < days.length; i++) days[i] = store.bucket(first + i);
+            months.put(month, days);
+        } while (dirty.contains(month));
+        loading.remove(month);
+        if (dirty.contains(month)) request(month);
+        if (notifyQueued.compareAndSet(false, true)) {
+            javax.swing.SwingUtilities.invokeLater(() -> {
+                notifyQueued.set(false);
+                for (Runnable r : loadListeners) r.run();
+            });
+        }
+    }
+}
@@ -0,0 +1,371 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+// Keeps at most -Dteamtasker.residentMonths months of tasks in the store and the rest in one
+// file per month under <data dir>/months. Months are loaded on demand (the views' month
+// prefetch thread, the reminder scheduler, sync) and evicted least recently used first; an
+// evicted month that was edited is written back before it leaves memory. The reminder window
+// is pinned and never evicted.
+//
+// An edit to a month that is not resident (an import, a synced task) is only recorded here,
+// since listeners run under the store's locks, and is folded into the month file when the
+// month is loaded or at the next checkpoint, which also takes the edited days out of memory
+// again. The journal stays the crash log: at a checkpoint
+// every dirty month is written and the journal starts over, and at startup the journal tail is
+// folded into the month files it touches.
+//
+// Export, clean up and the first sync upload walk every month through forEachMonth(). Search
+// and analytics only see resident months (and, for search, what was resident when the index
+// was built).
+class MonthPager implements TaskStore.Pager, TaskStore.Listener {
+    static final String DIRECTORY = "months";
+    private static final int MAGIC = 0x54544D4F; // "TTMO"
+    private static final int FORMAT = 1;
+    // the pinned window can span two months, plus the one on screen
+    private static final int MIN_CAPACITY = 3;
+
+    private final TaskStore store;
+    private final Path dir;
+    private final int capacity;
+    // Serializes loads, evictions and writes. Taken before the store's locks and before this,
+    // never while holding either; store listeners only ever take this.
+    private final Object io = new Object();
+    // guarded by this
+    private final LinkedHashMap<YearMonth, Boolean> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<YearMonth> dirty = new HashSet<>();
+    // edits to months that were not resident: id -> task, or null when removed
+    private final Map<YearMonth, Map<Long, Task>> pending = new HashMap<>();
+    private YearMonth pinFrom;
+    private YearMonth pinTo;
+
+    MonthPager(TaskStore store, Path dir, int capacity) {
+        this.store = store;
+        this.dir = dir;
+        this.capacity = Math.max(capacity, MIN_CAPACITY);
+    }
+
+    // Null unless -Dteamtasker.residentMonths is set.
+    static MonthPager fromSystemProperties(TaskStore store, Path dataDir) {
+        int months = residentMonths();
+        return months > 0 ? new MonthPager(store, dataDir.resolve(DIRECTORY), months) : null;
+    }
+
+    static int residentMonths() {
+        return Integer.getInteger("teamtasker.residentMonths", 0);
+    }
+
+    static YearMonth monthOf(long epochDay) {
+        return YearMonth.from(LocalDate.ofEpochDay(epochDay));
+    }
+
+    // Called by TaskJournal once the month files are up to date.
+    void attach() throws IOException {
+        Files.createDirectories(dir);
+        store.setPager(this);
+        store.addListener(this);
+    }
+
+    @Override
+    public void ensureResident(long fromDay, long toDay) {
+        YearMonth first = monthOf(fromDay);
+        YearMonth last = monthOf(toDay);
+        Set<YearMonth> wanted = new HashSet<>();
+        for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1)) {
+            wanted.add(m);
+            load(m);
+        }
+        evict(wanted);
+    }
+
+    @Override
+    public void pin(long fromDay, long toDay) {
+        synchronized (this) {
+            pinFrom = monthOf(fromDay);
+            pinTo = monthOf(toDay);
+        }
+        ensureResident(fromDay, toDay);
+    }
+
+    // Each month is loaded in turn, so the walk evicts what it passes like any other load.
+    @Override
+    public void forEachMonth(long fromDay, long toDay, BiConsumer<Long, Long> action) {
+        for (YearMonth m : months(fromDay, toDay)) {
+            long first = m.atDay(1).toEpochDay();
+            long last = m.atEndOfMonth().toEpochDay();
+            synchronized (io) {
+                // holding io keeps it from being evicted under action
+                ensureResident(first, last);
+                action.accept(first, last);
+            }
+        }
+    }
+
+    // Months with a file, resident or with pending edits, overlapping [fromDay, toDay].
+    private SortedSet<YearMonth> months(long fromDay, long toDay) {
+        SortedSet<YearMonth> months = new TreeSet<>();
+        synchronized (this) {
+            months.addAll(resident.keySet());
+            months.addAll(pending.keySet());
+        }
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    String name = p.getFileName().toString();
+                    if (name.endsWith(".month")) months.add(YearMonth.parse(name.substring(0, name.length() - 6)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        months.removeIf(m -> m.atEndOfMonth().toEpochDay() < fromDay || m.atDay(1).toEpochDay() > toDay);
+        return months;
+    }
+
+    synchronized int residentCount() {
+        return resident.size();
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        synchronized (this) {
+            for (TaskChange change : changes) {
+                if (change.rule != null) continue; // rules and their occurrences live in the snapshot
+                Task before = change.before;
+                Task after = change.after;
+                if (before != null && (after == null || after.epochDay != before.epochDay)) note(before.epochDay, before.id, null);
+                if (after != null) note(after.epochDay, after.id, after);
+            }
+        }
+    }
+
+    // Caller holds this.
+    private void note(long epochDay, long id, Task task) {
+        YearMonth month = monthOf(epochDay);
+        if (resident.containsKey(month)) {
+            dirty.add(month);
+        } else {
+            pending.computeIfAbsent(month, m -> new LinkedHashMap<>()).put(id, task);
+        }
+    }
+
+    private void load(YearMonth month) {
+        synchronized (io) {
+            synchronized (this) {
+                if (resident.get(month) != null) return; // get() also marks it recently used
+            }
+            Map<Long, Task> tasks = new LinkedHashMap<>();
+            try {
+                readMonth(month, tasks);
+            } catch (IOException e) {
+                // leave it unloaded; what is resident for those days is still served
+                e.printStackTrace();
+                return;
+            }
+            Map<Long, Task> edits;
+            synchronized (this) {
+                edits = pending.remove(month);
+            }
+            if (edits != null) apply(edits, tasks);
+            Map<Long, List<Task>> byDay = new HashMap<>();
+            for (Task t : tasks.values()) byDay.computeIfAbsent(t.epochDay, d -> new ArrayList<>()).add(t);
+            store.load(byDay);
+            synchronized (this) {
+                resident.put(month, Boolean.TRUE);
+                if (edits != null) dirty.add(month);
+            }
+        }
+    }
+
+    // Evicts least recently used months beyond capacity, except pinned months and keep.
+    private void evict(Set<YearMonth> keep) {
+        synchronized (io) {
+            while (true) {
+                YearMonth victim = null;
+                boolean wasDirty;
+                synchronized (this) {
+                    if (resident.size() <= capacity) return;
+                    for (YearMonth m : resident.keySet()) {
+                        if (!keep.contains(m) && !pinned(m)) {
+                            victim = m;
+                            break;
+                        }
+                    }
+                    if (victim == null) return;
+                    // from here edits to the month are recorded as pending; any that land before
+                    // unload() are also in what it returns, and applying them twice is harmless
+                    resident.remove(victim);
+                    wasDirty = dirty.remove(victim);
+                }
+                NavigableMap<Long, DayBucket> gone = store.unload(victim.atDay(1).toEpochDay(),
+                        victim.atEndOfMonth().toEpochDay());
+                if (!wasDirty) continue;
+                List<Task> tasks = new ArrayList<>();
+                for (DayBucket bucket : gone.values()) tasks.addAll(bucket.tasks);
+                try {
+                    writeMonth(victim, tasks);
+                } catch (IOException e) {
+                    // keep it in memory rather than lose the edits
+                    e.printStackTrace();
+                    Map<Long, List<Task>> byDay = new HashMap<>();
+                    for (Map.Entry<Long, DayBucket> day : gone.entrySet()) byDay.put(day.getKey(), day.getValue().tasks);
+                    store.load(byDay);
+                    synchronized (this) {
+                        resident.put(victim, Boolean.TRUE);
+                        dirty.add(victim);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    // Caller holds this.
+    private boolean pinned(YearMonth month) {
+        return pinFrom != null && !month.isBefore(pinFrom) && !month.isAfter(pinTo);
+    }
+
+    // Writes every dirty month and folds pending edits into the files of months that are not
+    // resident. Runs on the journal writer at a checkpoint; failed months stay marked.
+    void flush() throws IOException {
+        synchronized (io) {
+            List<YearMonth> written = new ArrayList<>();
+            Map<YearMonth, Map<Long, Task>> folds = new HashMap<>();
+            synchronized (this) {
+                written.addAll(dirty);
+                dirty.clear();
+                for (Map.Entry<YearMonth, Map<Long, Task>> e : pending.entrySet()) {
+                    // resident means the store has the edits already
+                    if (resident.containsKey(e.getKey())) written.add(e.getKey());
+                    else folds.put(e.getKey(), e.getValue());
+                }
+                pending.clear();
+            }
+            IOException failure = null;
+            for (YearMonth m : written) {
+                try {
+                    List<Task> tasks = new ArrayList<>();
+                    for (DayBucket bucket : store.range(m.atDay(1).toEpochDay(), m.atEndOfMonth().toEpochDay()).values()) {
+                        tasks.addAll(bucket.tasks);
+                    }
+                    writeMonth(m, tasks);
+                } catch (IOException e) {
+                    failure = e;
+                    synchronized (this) {
+                        dirty.add(m);
+                    }
+                }
+            }
+            for (Map.Entry<YearMonth, Map<Long, Task>> e : folds.entrySet()) {
+                YearMonth m = e.getKey();
+                try {
+                    Map<Long, Task> tasks = new LinkedHashMap<>();
+                    readMonth(m, tasks);
+                    apply(e.getValue(), tasks);
+                    writeMonth(m, tasks.values());
+                    // the store kept the edited days since; the file has them now, and holding io
+                    // keeps the month from loading meanwhile
+                    store.unload(m.atDay(1).toEpochDay(), m.atEndOfMonth().toEpochDay());
+                } catch (IOException ex) {
+                    failure = ex;
+                    synchronized (this) {
+                        // edits recorded since are newer and stay on top
+                        Map<Long, Task> now = pending.computeIfAbsent(m, k -> new LinkedHashMap<>());
+                        for (Map.Entry<Long, Task> edit : e.getValue().entrySet()) now.putIfAbsent(edit.getKey(), edit.getValue());
+                    }
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    private static void apply(Map<Long, Task> edits, Map<Long, Task> tasks) {
+        for (Map.Entry<Long, Task> e : edits.entrySet()) {
+            if (e.getValue() == null) tasks.remove(e.getKey());
+            else tasks.put(e.getKey(), e.getValue());
+        }
+    }
+
+    private Path file(YearMonth month) {
+        return dir.resolve(month + ".month");
+    }
+
+    // Adds the tasks stored for month to into, by id; a missing file is an empty month.
+    void readMonth(YearMonth month, Map<Long, Task> into) throws IOException {
+        readFile(file(month), into);
+    }
+
+    private static void readFile(Path path, Map<Long, Task> into) throws IOException {
+        if (!Files.exists(path)) return;
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (in.remaining() < 12 || in.getInt() != MAGIC || in.getInt() != FORMAT) {
+            throw new IOException("Unrecognized month file " + path);
+        }
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            long id = in.getLong();
+            long day = in.getLong();
+            into.put(id, TaskJournal.readTask(in, id, day));
+        }
+    }
+
+    // Replaces the month's file (or deletes it when empty) via a synced temporary file.
+    void writeMonth(YearMonth month, Collection<Task> tasks) throws IOException {
+        Path path = file(month);
+        if (tasks.isEmpty()) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * tasks.size() + 12);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeInt(tasks.size());
+        for (Task t : tasks) {
+            out.writeLong(t.id);
+            out.writeLong(t.epochDay);
+            TaskJournal.writeTaskBody(out, t);
+        }
+        Files.createDirectories(dir);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(bytes.toByteArray());
+            while (body.hasRemaining()) ch.write(body);
+            ch.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads every month file under dir into into; returns whether there were any. Used when
+    // paging is switched off again, so the months go back into the full snapshot.
+    static boolean readAll(Path dir, Map<Long, Task> into) throws IOException {
+        if (!Files.isDirectory(dir)) return false;
+        boolean any = false;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".month"))::iterator) {
+                readFile(p, into);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    static void deleteAll(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,161 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import javax.swing.*;
+
+// Months as one continuous scroll of week rows, SPAN_YEARS either side of today. Like the
+// agenda, the list model is virtual and rows have a fixed height, so only the visible weeks
+// are ever rendered; each row is painted directly by one recycled renderer rather than built
+// from per-day components. Alternate months are shaded so their boundaries show while scrolling.
+class MonthScrollView extends JPanel {
+    private static final int SPAN_YEARS = 10;
+    private static final int ROW_HEIGHT = 76;
+    private static final Color EVEN_MONTH = new Color(230, 240, 255);
+    private static final Color ODD_MONTH = new Color(245, 248, 255);
+    private static final Color GRID = new Color(0x2575fc);
+    private static final Font DAY_FONT = new Font("Segoe UI", Font.BOLD, 14);
+    private static final Font COUNT_FONT = new Font("Segoe UI", Font.PLAIN, 10);
+    private static final Font OVERDUE_FONT = new Font("Segoe UI", Font.BOLD, 10);
+
+    private final MonthCache cache;
+    private final long origin; // a Sunday
+    private final JList<Long> list;
+    private final JScrollPane scroll;
+
+    // onOpenDay receives the clicked day; onScroll the first day of the topmost visible week.
+    MonthScrollView(MonthCache cache, LongConsumer onOpenDay, Consumer<LocalDate> onScroll) {
+        super(new BorderLayout());
+        this.cache = cache;
+        LocalDate today = CalendarClock.get().today();
+        LocalDate start = today.minusYears(SPAN_YEARS);
+        this.origin = start.toEpochDay() - start.getDayOfWeek().getValue() % 7;
+        int rows = (int) ((today.plusYears(SPAN_YEARS).toEpochDay() - origin) / 7 + 1);
+
+        list = new JList<>(new AbstractListModel<Long>() {
+            @Override
+            public int getSize() {
+                return rows;
+            }
+
+            @Override
+            public Long getElementAt(int index) {
+                return origin + 7L * index;
+            }
+        });
+        list.setFixedCellHeight(ROW_HEIGHT);
+        list.setFixedCellWidth(100); // the list tracks the viewport width; this only stops it measuring rows
+        list.setCellRenderer(new WeekRenderer());
+        list.setSelectionModel(new DefaultListSelectionModel() {
+            @Override
+            public void setSelectionInterval(int index0, int index1) {
+                // days, not weeks, are what gets picked; see the mouse listener
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (row < 0) return;
+                int column = Math.min(6, e.getX() * 7 / Math.max(1, list.getWidth()));
+                onOpenDay.accept(origin + 7L * row + column);
+            }
+        });
+        scroll = new JScrollPane(list);
+        scroll.getVerticalScrollBar().setUnitIncrement(ROW_HEIGHT / 3);
+        scroll.getViewport().addChangeListener(e -> {
+            int first = list.getFirstVisibleIndex();
+            int last = list.getLastVisibleIndex();
+            if (first < 0) return;
+            LocalDate top = LocalDate.ofEpochDay(origin + 7L * first);
+            cache.prefetch(YearMonth.from(top).minusMonths(1),
+                    YearMonth.from(LocalDate.ofEpochDay(origin + 7L * last + 6)).plusMonths(2));
+            // the month most of the top row belongs to
+            onScroll.accept(top.plusDays(6));
+        });
+
+        JPanel header = new JPanel(new GridLayout(1, 7));
+        header.setBackground(Color.WHITE);
+        for (String day : new String[] {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"}) {
+            JLabel lbl = new JLabel(day, SwingConstants.CENTER);
+            lbl.setFont(DAY_FONT);
+            lbl.setForeground(GRID);
+            header.add(lbl);
+        }
+        add(header, BorderLayout.NORTH);
+        add(scroll, BorderLayout.CENTER);
+        cache.onLoaded(list::repaint);
+    }
+
+    // Puts the week containing date at the top of the view.
+    void scrollTo(LocalDate date) {
+        long row = Math.max(0, Math.min(list.getModel().getSize() - 1, (date.toEpochDay() - origin) / 7));
+        int max = list.getPreferredSize().height - scroll.getViewport().getExtentSize().height;
+        scroll.getViewport().setViewPosition(new Point(0, (int) Math.min(row * ROW_HEIGHT, Math.max(0, max))));
+    }
+
+    private final class WeekRenderer extends JComponent implements ListCellRenderer<Long> {
+        private long firstDay;
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Long> list, Long firstDay, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            this.firstDay = firstDay;
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            int w = getWidth();
+            int h = getHeight();
+            long today = CalendarClock.get().todayEpochDay();
+            int nowMinute = CalendarClock.get().minuteOfDay();
+            for (int i = 0; i < 7; i++) {
+                long day = firstDay + i;
+                LocalDate date = LocalDate.ofEpochDay(day);
+                int x0 = i * w / 7;
+                int x1 = (i + 1) * w / 7;
+                g2.setColor(date.getMonthValue() % 2 == 0 ? EVEN_MONTH : ODD_MONTH);
+                g2.fillRect(x0, 0, x1 - x0, h);
+                g2.setColor(GRID);
+                g2.drawRect(x0, 0, x1 - x0 - 1, h - 1);
+
+                String label = date.getDayOfMonth() == 1
+                        ? date.getMonth().getDisplayName(TextStyle.SHORT, Locale.getDefault()) + " 1"
+                        : String.valueOf(date.getDayOfMonth());
+                g2.setFont(DAY_FONT);
+                g2.setColor(day == today ? new Color(0xB00020) : Color.BLACK);
+                FontMetrics fm = g2.getFontMetrics();
+                g2.drawString(label, x0 + (x1 - x0 - fm.stringWidth(label)) / 2, 6 + fm.getAscent());
+
+                DayBucket bucket = cache.bucket(day);
+                g2.setFont(COUNT_FONT);
+                if (bucket == null) {
+                    g2.setColor(Color.GRAY);
+                    drawCentered(g2, "\u2026", x0, x1, 44);
+                    continue;
+                }
+                if (bucket.unfinished > 0) {
+                    g2.setColor(Color.DARK_GRAY);
+                    drawCentered(g2, "\uD83D\uDCCC " + bucket.unfinished + " Unfinished", x0, x1, 44);
+                }
+                int overdue = bucket.overdue(day, today, nowMinute);
+                if (overdue > 0) {
+                    g2.setFont(OVERDUE_FONT);
+                    g2.setColor(Color.RED);
+                    drawCentered(g2, "\u26A0 " + overdue + " Overdue", x0, x1, 60);
+                }
+            }
+        }
+
+        private void drawCentered(Graphics2D g2, String text, int x0, int x1, int baseline) {
+            g2.drawString(text, x0 + (x1 - x0 - g2.getFontMetrics().stringWidth(text)) / 2, baseline);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+
+// Collects fired reminders into one non-modal panel, grouped by kind. remind() only queues the
+// reminder and, for the first one in a burst, asks the EDT for a flush FLUSH_MILLIS later; so
+// hundreds of reminders firing at once cost one EDT event, not one dialog each. A flush updates
+// the groups in place (a task already listed under a kind is replaced, not repeated), and the
+// panel pops up by itself at most once per POPUP_INTERVAL_MILLIS; in between, the bell button
+// in the header counts what arrived unseen.
+class NotificationCenter implements ReminderScheduler.Sink {
+    private static final int FLUSH_MILLIS = 250;
+    private static final long POPUP_INTERVAL_MILLIS = 30_000;
+    private static final int MAX_PER_GROUP = 200;
+
+    private static final class Notice {
+        final ReminderScheduler.Kind kind;
+        final Task task;
+
+        Notice(ReminderScheduler.Kind kind, Task task) {
+            this.kind = kind;
+            this.task = task;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Notice> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final javax.swing.Timer flushTimer = new javax.swing.Timer(FLUSH_MILLIS, e -> flush());
+    private final Map<ReminderScheduler.Kind, Group> groups = new EnumMap<>(ReminderScheduler.Kind.class);
+    private final JDialog dialog;
+    private final JButton bell = new JButton();
+    private long lastPopup = Long.MIN_VALUE / 2;
+    private int unseen;
+
+    NotificationCenter(JFrame owner, Consumer<Task> onOpen) {
+        flushTimer.setRepeats(false);
+        dialog = new JDialog(owner, "Reminders", false);
+        dialog.setFocusableWindowState(false); // popping up must not steal typing focus
+        dialog.setSize(420, 480);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                dialog.setFocusableWindowState(true);
+            }
+        });
+
+        JPanel content = new JPanel();
+        content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
+        content.setBorder(new EmptyBorder(8, 8, 8, 8));
+        // warning sign, alarm clock, green circle, calendar
+        addGroup(content, ReminderScheduler.Kind.OVERDUE, "\u26A0\uFE0F Overdue", onOpen);
+        addGroup(content, ReminderScheduler.Kind.AT_START, "\u23F0 Starting now", onOpen);
+        addGroup(content, ReminderScheduler.Kind.DUE_TODAY, "\uD83D\uDFE2 Due today", onOpen);
+        addGroup(content, ReminderScheduler.Kind.TOMORROW, "\uD83D\uDCC5 Tomorrow", onOpen);
+        dialog.add(new JScrollPane(content));
+
+        bell.setFocusPainted(false);
+        bell.setForeground(Color.WHITE);
+        bell.setBackground(new Color(0x2575fc));
+        bell.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        bell.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        bell.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        bell.addActionListener(e -> {
+            if (dialog.isVisible()) dialog.setVisible(false);
+            else showPanel();
+        });
+        updateBell();
+    }
+
+    // Header button that opens the panel and shows how many reminders arrived unseen.
+    JButton button() {
+        return bell;
+    }
+
+    // Called on the reminder thread; never blocks and never touches Swing state.
+    @Override
+    public void remind(ReminderScheduler.Kind kind, Task task) {
+        incoming.add(new Notice(kind, task));
+        if (flushQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(flushTimer::restart);
+        }
+    }
+
+    private void flush() {
+        flushQueued.set(false);
+        int added = 0;
+        Notice n;
+        while ((n = incoming.poll()) != null) {
+            Group group = groups.get(n.kind);
+            if (group != null && group.put(n.task)) added++;
+        }
+        for (Group group : groups.values()) group.updateHeader();
+        if (added == 0) return;
+        long now = CalendarClock.get().millis();
+        if (dialog.isVisible()) {
+            dialog.repaint();
+        } else if (now - lastPopup >= POPUP_INTERVAL_MILLIS) {
+            showPanel();
+        } else {
+            unseen += added;
+            updateBell();
+        }
+    }
+
+    private void showPanel() {
+        lastPopup = CalendarClock.get().millis();
+        unseen = 0;
+        updateBell();
+        if (!dialog.isVisible()) {
+            Window owner = dialog.getOwner();
+            if (owner != null && owner.isShowing()) {
+                Point p = owner.getLocationOnScreen();
+                dialog.setLocation(p.x + owner.getWidth() - dialog.getWidth() - 20, p.y + 80);
+            }
+            dialog.setVisible(true);
+        }
+    }
+
+    private void updateBell() {
+        bell.setText(unseen == 0 ? "\uD83D\uDD14" : "\uD83D\uDD14 " + unseen); // bell
+    }
+
+    private void addGroup(JPanel content, ReminderScheduler.Kind kind, String title, Consumer<Task> onOpen) {
+        Group group = new Group(title);
+        groups.put(kind, group);
+        group.list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = group.list.locationToIndex(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0) onOpen.accept(group.model.get(row));
+            }
+        });
+        content.add(group.panel);
+    }
+
+    // One kind's reminders, newest first, at most MAX_PER_GROUP of them.
+    private static final class Group {
+        final String title;
+        final JLabel header = new JLabel();
+        final DefaultListModel<Task> model = new DefaultListModel<>();
+        final JList<Task> list = new JList<>(model);
+        final JPanel panel = new JPanel(new BorderLayout());
+
+        Group(String title) {
+            this.title = title;
+            header.setFont(new Font("Segoe UI", Font.BOLD, 14));
+            JButton dismiss = new JButton("Dismiss");
+            dismiss.addActionListener(e -> {
+                model.clear();
+                updateHeader();
+            });
+            JPanel top = new JPanel(new BorderLayout());
+            top.add(header, BorderLayout.WEST);
+            top.add(dismiss, BorderLayout.EAST);
+            list.setCellRenderer(new DefaultListCellRenderer() {
+                @Override
+                public Component getListCellRendererComponent(JList<?> l, Object value, int index,
+                                                              boolean isSelected, boolean cellHasFocus) {
+                    return super.getListCellRendererComponent(l, ((Task) value).text(), index, isSelected, cellHasFocus);
+                }
+            });
+            list.setVisibleRowCount(4);
+            panel.add(top, BorderLayout.NORTH);
+            panel.add(new JScrollPane(list), BorderLayout.CENTER);
+            panel.setVisible(false);
+        }
+
+        // Returns true if the task was not listed yet.
+        boolean put(Task task) {
+            for (int i = 0; i < model.size(); i++) {
+                if (model.get(i).id == task.id) {
+                    model.set(i, task);
+                    return false;
+                }
+            }
+            model.add(0, task);
+            if (model.size() > MAX_PER_GROUP) model.remove(model.size() - 1);
+            return true;
+        }
+
+        void updateHeader() {
+            header.setText(title + " (" + model.size() + ")");
+            panel.setVisible(!model.isEmpty());
+        }
+    }
+}
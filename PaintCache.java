@@ -0,0 +1,64 @@
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+// Caches a component's background in an image compatible with its screen, keyed by logical
+// size and device scale. The painter only runs again after a resize or a move to a screen
+// with a different scale; every other repaint is a single blit of the cached pixels.
+class PaintCache {
+    private final int transparency;
+    private BufferedImage image;
+    private int width;
+    private int height;
+    private double scaleX;
+    private double scaleY;
+
+    // transparency is one of Transparency.OPAQUE / BITMASK / TRANSLUCENT.
+    PaintCache(int transparency) {
+        this.transparency = transparency;
+    }
+
+    // Draws the cached image at (0, 0) in logical size width x height, rendering it first with
+    // painter (in logical coordinates) if the cache does not match the current size and scale.
+    void paint(Component c, Graphics g, int width, int height, Consumer<Graphics2D> painter) {
+        if (width <= 0 || height <= 0) return;
+        Graphics2D g2 = (Graphics2D) g;
+        AffineTransform tx = g2.getTransform();
+        double sx = tx.getScaleX();
+        double sy = tx.getScaleY();
+        if (image == null || width != this.width || height != this.height || sx != scaleX || sy != scaleY) {
+            render(c, width, height, sx, sy, painter);
+        }
+        g2.drawImage(image, 0, 0, width, height, null);
+    }
+
+    void invalidate() {
+        if (image != null) image.flush();
+        image = null;
+    }
+
+    private void render(Component c, int width, int height, double sx, double sy, Consumer<Graphics2D> painter) {
+        invalidate();
+        int pw = Math.max(1, (int) Math.ceil(width * sx));
+        int ph = Math.max(1, (int) Math.ceil(height * sy));
+        GraphicsConfiguration gc = c == null ? null : c.getGraphicsConfiguration();
+        if (gc != null) {
+            image = gc.createCompatibleImage(pw, ph, transparency);
+        } else {
+            image = new BufferedImage(pw, ph, transparency == Transparency.OPAQUE
+                    ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D ig = image.createGraphics();
+        try {
+            ig.scale((double) pw / width, (double) ph / height);
+            painter.accept(ig);
+        } finally {
+            ig.dispose();
+        }
+        this.width = width;
+        this.height = height;
+        this.scaleX = sx;
+        this.scaleY = sy;
+    }
+}
@@ -0,0 +1,210 @@
+import java.time.LocalDate;
+import java.util.*;
+
+// A repeating task, stored once. Occurrences are not materialized: occursOn() and occurrence()
+// answer for one day from the pattern alone, so a rule costs the same whether it repeats for a
+// week or forever. What is remembered per occurrence is only the exceptional: the days that
+// were ticked done and the days that were cancelled, as sorted arrays.
+//
+// Every occurrence is a Task with the rule's id on its own day; ids are unique per day, which
+// is all the day views and reminders rely on.
+final class RecurrenceRule {
+    enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    static final long NO_END = Long.MAX_VALUE;
+
+    private static final String[] WEEKDAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final long[] NONE = new long[0];
+
+    final long id;
+    final String title;
+    final String description;
+    final int startMinute;
+    final int endMinute;
+    final long startDay;
+    final Frequency frequency;
+    final int interval;
+    final int weekdays;     // WEEKLY only: bit 0 is Monday ... bit 6 is Sunday
+    final long untilDay;    // last day an occurrence may fall on, or NO_END
+    final int count;        // number of occurrences including cancelled ones, or 0 for no limit
+    private final long lastDay;
+    private final long[] exceptions;
+    private final long[] doneDays;
+
+    RecurrenceRule(long id, String title, String description, int startMinute, int endMinute,
+                   long startDay, Frequency frequency, int interval, int weekdays, long untilDay, int count) {
+        this(id, title, description, startMinute, endMinute, startDay, frequency, interval, weekdays,
+                untilDay, count, NONE, NONE);
+    }
+
+    RecurrenceRule(long id, String title, String description, int startMinute, int endMinute,
+                   long startDay, Frequency frequency, int interval, int weekdays, long untilDay, int count,
+                   long[] exceptions, long[] doneDays) {
+        if (interval < 1) throw new IllegalArgumentException("Interval must be at least 1: " + interval);
+        if (count < 0) throw new IllegalArgumentException("Count must not be negative: " + count);
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+        this.startDay = startDay;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.weekdays = frequency == Frequency.WEEKLY && (weekdays & 0x7F) == 0
+                ? 1 << weekday(startDay) : weekdays & 0x7F;
+        this.untilDay = untilDay;
+        this.count = count;
+        this.exceptions = exceptions;
+        this.doneDays = doneDays;
+        this.lastDay = count == 0 ? untilDay : Math.min(untilDay, nthOccurrence(count));
+    }
+
+    boolean occursOn(long epochDay) {
+        return epochDay >= startDay && epochDay <= lastDay && matches(epochDay)
+                && Arrays.binarySearch(exceptions, epochDay) < 0;
+    }
+
+    // The occurrence on epochDay; only meaningful when occursOn(epochDay).
+    Task occurrence(long epochDay) {
+        return new Task(id, title, description, epochDay, startMinute, endMinute,
+                Arrays.binarySearch(doneDays, epochDay) >= 0);
+    }
+
+    // Occurrences in [fromDay, toDay], ascending.
+    List<Task> occurrences(long fromDay, long toDay) {
+        List<Task> out = new ArrayList<>();
+        long to = Math.min(toDay, lastDay);
+        for (long d = nextMatch(Math.max(fromDay, startDay)); d <= to; d = nextMatch(d + 1)) {
+            if (Arrays.binarySearch(exceptions, d) < 0) out.add(occurrence(d));
+        }
+        return out;
+    }
+
+    RecurrenceRule withDone(long epochDay, boolean done) {
+        long[] next = done ? with(doneDays, epochDay) : without(doneDays, epochDay);
+        return next == doneDays ? this : copy(exceptions, next);
+    }
+
+    // Cancels the occurrence on epochDay.
+    RecurrenceRule withException(long epochDay) {
+        return copy(with(exceptions, epochDay), without(doneDays, epochDay));
+    }
+
+    RecurrenceRule withId(long id) {
+        return new RecurrenceRule(id, title, description, startMinute, endMinute, startDay, frequency,
+                interval, weekdays, untilDay, count, exceptions, doneDays);
+    }
+
+    long[] exceptions() {
+        return exceptions.clone();
+    }
+
+    long[] doneDays() {
+        return doneDays.clone();
+    }
+
+    // "Every 2 weeks on Mon, Thu, 10 times" and the like, for dialogs.
+    String summary() {
+        StringBuilder sb = new StringBuilder("Every ");
+        String unit = frequency == Frequency.DAILY ? "day" : frequency == Frequency.WEEKLY ? "week" : "month";
+        sb.append(interval == 1 ? unit : interval + " " + unit + "s");
+        if (frequency == Frequency.WEEKLY) {
+            StringJoiner days = new StringJoiner(", ", " on ", "");
+            for (int i = 0; i < 7; i++) {
+                if ((weekdays & 1 << i) != 0) days.add(WEEKDAY_NAMES[i]);
+            }
+            sb.append(days);
+        } else if (frequency == Frequency.MONTHLY) {
+            sb.append(" on day ").append(LocalDate.ofEpochDay(startDay).getDayOfMonth());
+        }
+        if (count > 0) sb.append(", ").append(count).append(" times");
+        if (untilDay != NO_END) sb.append(", until ").append(LocalDate.ofEpochDay(untilDay));
+        return sb.toString();
+    }
+
+    // Monday = 0 ... Sunday = 6; epoch day 0 was a Thursday.
+    static int weekday(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    // The pattern alone, ignoring the end and the exceptions.
+    private boolean matches(long day) {
+        switch (frequency) {
+            case DAILY:
+                return (day - startDay) % interval == 0;
+            case WEEKLY: {
+                if ((weekdays & 1 << weekday(day)) == 0) return false;
+                long weeks = Math.floorDiv(day - (startDay - weekday(startDay)), 7L);
+                return weeks % interval == 0;
+            }
+            default: {
+                LocalDate date = LocalDate.ofEpochDay(day);
+                LocalDate start = LocalDate.ofEpochDay(startDay);
+                long months = (date.getYear() - start.getYear()) * 12L + date.getMonthValue() - start.getMonthValue();
+                return date.getDayOfMonth() == start.getDayOfMonth() && months % interval == 0;
+            }
+        }
+    }
+
+    // The first day at or after day (and after startDay) matching the pattern, or NO_END.
+    private long nextMatch(long day) {
+        day = Math.max(day, startDay);
+        switch (frequency) {
+            case DAILY: {
+                long steps = Math.floorDiv(day - startDay + interval - 1, interval);
+                return startDay + steps * interval;
+            }
+            case WEEKLY: {
+                for (int i = 0; i < 7 * interval; i++) {
+                    if (matches(day + i)) return day + i;
+                }
+                return NO_END;
+            }
+            default: {
+                LocalDate start = LocalDate.ofEpochDay(startDay);
+                LocalDate from = LocalDate.ofEpochDay(day);
+                long months = (from.getYear() - start.getYear()) * 12L + from.getMonthValue() - start.getMonthValue();
+                months = Math.floorDiv(months + interval - 1, interval) * interval;
+                // months too short for the day are skipped; 400 years always contain a match
+                for (int i = 0; i < 4800; i += interval, months += interval) {
+                    LocalDate month = start.withDayOfMonth(1).plusMonths(months);
+                    if (start.getDayOfMonth() > month.lengthOfMonth()) continue;
+                    long d = month.withDayOfMonth(start.getDayOfMonth()).toEpochDay();
+                    if (d >= day) return d;
+                }
+                return NO_END;
+            }
+        }
+    }
+
+    private long nthOccurrence(int n) {
+        long d = nextMatch(startDay);
+        for (int i = 1; i < n && d != NO_END; i++) d = nextMatch(d + 1);
+        return d;
+    }
+
+    private RecurrenceRule copy(long[] exceptions, long[] doneDays) {
+        return new RecurrenceRule(id, title, description, startMinute, endMinute, startDay, frequency,
+                interval, weekdays, untilDay, count, exceptions, doneDays);
+    }
+
+    private static long[] with(long[] sorted, long day) {
+        int idx = Arrays.binarySearch(sorted, day);
+        if (idx >= 0) return sorted;
+        idx = -idx - 1;
+        long[] next = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, next, 0, idx);
+        next[idx] = day;
+        System.arraycopy(sorted, idx, next, idx + 1, sorted.length - idx);
+        return next;
+    }
+
+    private static long[] without(long[] sorted, long day) {
+        int idx = Arrays.binarySearch(sorted, day);
+        if (idx < 0) return sorted;
+        long[] next = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, next, 0, idx);
+        System.arraycopy(sorted, idx + 1, next, idx, sorted.length - idx - 1);
+        return next;
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.*;
+
+// Which reminders have already fired, keyed by (task id, kind) and partitioned by the day they
+// fired on. Keys live in primitive open-addressing sets, and partitions older than yesterday
+// are dropped as days roll over, so memory stays flat however long the app runs.
+class ReminderLog {
+    private static final int KIND_BITS = 3;
+
+    private final TreeMap<Long, LongSet> days = new TreeMap<>();
+
+    // Returns true the first time a reminder is recorded for the given day.
+    synchronized boolean markFired(long epochDay, long taskId, int kind) {
+        LongSet set = days.get(epochDay);
+        if (set == null) {
+            days.headMap(epochDay - 1).clear();
+            set = new LongSet();
+            days.put(epochDay, set);
+        }
+        return set.add(taskId << KIND_BITS | kind);
+    }
+
+    synchronized int size() {
+        int n = 0;
+        for (LongSet set : days.values()) n += set.size;
+        return n;
+    }
+
+    private static final class LongSet {
+        private static final long FREE = Long.MIN_VALUE;
+
+        private long[] slots = newSlots(16);
+        private int size;
+
+        boolean add(long key) {
+            if ((size + 1) * 2 > slots.length) grow();
+            return insert(slots, key);
+        }
+
+        private boolean insert(long[] table, long key) {
+            int mask = table.length - 1;
+            int i = mix(key) & mask;
+            while (table[i] != FREE) {
+                if (table[i] == key) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            if (table == slots) size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = newSlots(old.length * 2);
+            size = 0;
+            for (long key : old) {
+                if (key != FREE) insert(slots, key);
+            }
+        }
+
+        private static long[] newSlots(int n) {
+            long[] table = new long[n];
+            Arrays.fill(table, FREE);
+            return table;
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the reminders that can fire today in a DelayQueue and sleeps until the head is due.
+// Only today's window (tomorrow's, today's and yesterday's tasks) is ever armed; a rollover
+// event at midnight arms the next window, so the queue stays small regardless of task count.
+// Reminders that fire go to a Sink on this thread; showing them is the sink's business.
+//
+// Time comes from the CalendarClock. When a simulated clock jumps, a wake-up entry (no kind)
+// is queued so the sleeping thread re-reads the delays of everything that became due.
+class ReminderScheduler implements TaskStore.Listener {
+    enum Kind { TOMORROW, DUE_TODAY, AT_START, OVERDUE, ROLLOVER }
+
+    interface Sink {
+        // Called on the scheduler thread; must not block.
+        void remind(Kind kind, Task task);
+    }
+
+    private final TaskStore store;
+    private final Sink sink;
+    private final CalendarClock clock = CalendarClock.get();
+    private final DelayQueue<Reminder> queue = new DelayQueue<>();
+    private final ReminderLog reminded = new ReminderLog();
+    private final Thread thread = new Thread(this::run, "reminder-scheduler");
+    private volatile long today;
+
+    ReminderScheduler(TaskStore store, Sink sink) {
+        this.store = store;
+        this.sink = sink;
+        thread.setDaemon(true);
+        clock.onAdvance(() -> queue.add(new Reminder(null, null, today, 0)));
+    }
+
+    // Whether the thread is waiting with nothing due; lets soak tests settle after a time step.
+    boolean idle() {
+        Reminder head = queue.peek();
+        Thread.State state = thread.getState();
+        return (head == null || head.getDelay(TimeUnit.NANOSECONDS) > 0)
+                && (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING);
+    }
+
+    void start() {
+        store.addListener(this);
+        armWindow();
+        thread.start();
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        long day = today;
+        for (TaskChange change : changes) {
+            if (change.isRuleChange()) {
+                queue.removeIf(r -> r.task != null && r.task.id == change.rule.id);
+                if (change.kind == TaskChange.Kind.RULE_PUT) armOccurrences(change.rule, day);
+                continue;
+            }
+            if (change.before != null) cancel(change.before.id, change.before.epochDay);
+            if (change.after != null && !change.after.done) arm(change.after, day);
+        }
+    }
+
+    // Occurrences of a rule share its id, so a reminder is identified by id and day.
+    private void cancel(long taskId, long epochDay) {
+        queue.removeIf(r -> r.task != null && r.task.id == taskId && r.task.epochDay == epochDay);
+    }
+
+    private void armOccurrences(RecurrenceRule rule, long day) {
+        for (Task task : rule.occurrences(day - 1, day + 1)) {
+            if (!task.done) arm(task, day);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                Reminder r = queue.take();
+                if (r.kind == null) continue; // the clock moved; take() looks at the new head
+                long started = clock.nanoTime();
+                CalendarMetrics.INSTANCE.reminderLag.record(started - r.dueNanos);
+                if (r.kind == Kind.ROLLOVER) {
+                    armWindow();
+                } else if (r.day == today) {
+                    Task current = store.find(r.task.epochDay, r.task.id);
+                    if (current != null && !current.done) fire(r.kind, current);
+                }
+                CalendarMetrics.INSTANCE.reminderLoop.record(clock.nanoTime() - started);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Drops whatever is left of the previous window and arms today's; returns the number of
+    // tasks scanned. Package-private so benchmarks can time the sweep without the thread.
+    int armWindow() {
+        queue.clear();
+        LocalDate date = clock.today();
+        today = date.toEpochDay();
+        // a paged store keeps this window in memory until the next rollover moves it
+        store.pinResident(today - 1, today + 1);
+        int scanned = 0;
+        // day by day rather than a snapshot, since only bucket() expands recurring tasks
+        for (long d = today - 1; d <= today + 1; d++) {
+            for (Task task : store.bucket(d).tasks) {
+                if (!task.done) arm(task, today);
+                scanned++;
+            }
+        }
+        queue.add(new Reminder(Kind.ROLLOVER, null, today, clock.millisUntil(date.plusDays(1).atStartOfDay())));
+        return scanned;
+    }
+
+    // Arms the events of task that fall on day; "due", "tomorrow" and "overdue" are all
+    // due from the start of day, so they fire as soon as they are armed.
+    private void arm(Task task, long day) {
+        if (task.epochDay == day + 1) {
+            queue.add(new Reminder(Kind.TOMORROW, task, day, 0));
+        } else if (task.epochDay == day) {
+            queue.add(new Reminder(Kind.DUE_TODAY, task, day, 0));
+            if (task.startMinute != Task.NO_TIME) {
+                long delay = clock.millisUntil(task.date().atStartOfDay().plusMinutes(task.startMinute));
+                if (delay >= 0) queue.add(new Reminder(Kind.AT_START, task, day, delay));
+            }
+        } else if (task.epochDay == day - 1) {
+            queue.add(new Reminder(Kind.OVERDUE, task, day, 0));
+        }
+    }
+
+    private void fire(Kind kind, Task task) {
+        if (!reminded.markFired(today, task.id, kind.ordinal())) return;
+        CalendarMetrics.INSTANCE.reminderFired();
+        sink.remind(kind, task);
+    }
+
+    private final class Reminder implements Delayed {
+        final Kind kind;
+        final Task task;
+        final long day;
+        final long dueNanos;
+
+        Reminder(Kind kind, Task task, long day, long delayMillis) {
+            this.kind = kind;
+            this.task = task;
+            this.day = day;
+            // a wake-up must become the head, or take() is not signalled to look again
+            this.dueNanos = kind == null ? Long.MIN_VALUE
+                    : clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            if (kind == null) return 0;
+            return unit.convert(dueNanos - clock.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(dueNanos, ((Reminder) o).dueNanos);
+        }
+    }
+}
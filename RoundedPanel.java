@@ -4,6 +4,7 @@ import java.awt.*;
 class RoundedPanel extends JPanel {
     private final int cornerRadius;
     private final Color bgColor;
+    private final PaintCache background = new PaintCache(Transparency.TRANSLUCENT);
 
     public RoundedPanel(int radius, Color bgColor) {
         this.cornerRadius = radius;
@@ -14,9 +15,10 @@ class RoundedPanel extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setColor(bgColor);
-        g2.fillRoundRect(0, 0, getWidth(), getHeight(), cornerRadius, cornerRadius);
+        background.paint(this, g, getWidth(), getHeight(), g2 -> {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(bgColor);
+            g2.fillRoundRect(0, 0, getWidth(), getHeight(), cornerRadius, cornerRadius);
+        });
     }
 }
@@ -0,0 +1,129 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.util.function.Consumer;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+// Search box for the calendar header. Typing restarts a short timer, and only when it fires is
+// the query sent to the SearchIndex thread; results come back on the EDT and are dropped if
+// the text has changed since. Hits show in a popup under the field, and choosing one hands
+// its task to onOpen.
+class SearchField extends JTextField {
+    private static final int DEBOUNCE_MILLIS = 150;
+    private static final int MAX_HITS = 50;
+
+    private final SearchIndex index;
+    private final Consumer<Task> onOpen;
+    private final Timer debounce;
+    private final DefaultListModel<SearchIndex.Hit> hits = new DefaultListModel<>();
+    private final JList<SearchIndex.Hit> list = new JList<>(hits);
+    private final JPopupMenu popup = new JPopupMenu();
+    private int generation;
+
+    SearchField(SearchIndex index, Consumer<Task> onOpen) {
+        super(18);
+        this.index = index;
+        this.onOpen = onOpen;
+        putClientProperty("JTextField.placeholderText", "Search tasks");
+        setFont(new Font("Segoe UI", Font.PLAIN, 13));
+
+        debounce = new Timer(DEBOUNCE_MILLIS, e -> runQuery());
+        debounce.setRepeats(false);
+        getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+
+        list.setFocusable(false);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new HitRenderer());
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (row >= 0) open(hits.get(row));
+            }
+        });
+        JScrollPane scroll = new JScrollPane(list);
+        scroll.setPreferredSize(new Dimension(440, 260));
+        popup.setFocusable(false);
+        popup.add(scroll);
+
+        bindKey("DOWN", "search-next", () -> moveSelection(1));
+        bindKey("UP", "search-previous", () -> moveSelection(-1));
+        bindKey("ENTER", "search-open", () -> {
+            if (!hits.isEmpty()) open(hits.get(Math.max(0, list.getSelectedIndex())));
+        });
+        bindKey("ESCAPE", "search-close", () -> popup.setVisible(false));
+    }
+
+    private void bindKey(String key, String name, Runnable action) {
+        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(key), name);
+        getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    private void runQuery() {
+        int gen = ++generation;
+        String query = getText().trim();
+        if (query.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        index.search(query, MAX_HITS).thenAcceptAsync(result -> {
+            if (gen == generation) show(result);
+        }, SwingUtilities::invokeLater);
+    }
+
+    private void show(SearchIndex.Result result) {
+        hits.clear();
+        for (SearchIndex.Hit hit : result.hits) hits.addElement(hit);
+        if (hits.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setSelectedIndex(0);
+        list.ensureIndexIsVisible(0);
+        if (!popup.isVisible() && isShowing()) popup.show(this, 0, getHeight());
+    }
+
+    private void moveSelection(int delta) {
+        if (hits.isEmpty()) return;
+        int row = Math.max(0, Math.min(hits.size() - 1, list.getSelectedIndex() + delta));
+        list.setSelectedIndex(row);
+        list.ensureIndexIsVisible(row);
+    }
+
+    private void open(SearchIndex.Hit hit) {
+        popup.setVisible(false);
+        onOpen.accept(hit.task);
+    }
+
+    private static class HitRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            Task t = ((SearchIndex.Hit) value).task;
+            String time = t.startMinute == Task.NO_TIME ? "all day" : Task.formatMinute(t.startMinute);
+            super.getListCellRendererComponent(list, t.date() + "   " + time + "   " + t.title,
+                    index, isSelected, cellHasFocus);
+            if (t.done && !isSelected) setForeground(Color.GRAY);
+            setToolTipText(t.description.isEmpty() ? null : t.description);
+            return this;
+        }
+    }
+}
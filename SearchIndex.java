@@ -0,0 +1,369 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Inverted index from title and description terms to tasks, for search-as-you-type. Every
+// query term is a prefix: the sorted term map turns it into one contiguous range, and the
+// query is driven by whichever term has the fewest postings, checking the others per candidate.
+// When even that term matches a large share of the calendar (a first letter, a word in every
+// title) the postings are not walked at all; days are scanned outward from today instead and
+// the scan stops as soon as nothing further away could outrank the hits already found.
+//
+// The index is owned by a single thread. Store changes are handed to it as tasks, queries run
+// on it too, so neither side locks and results always reflect the changes queued before them.
+// Indexing is idempotent, which lets the initial build run after the listener is attached
+// without losing or double-counting changes made in between. With a paged store only the months
+// resident at build time, and those edited since, are searchable.
+class SearchIndex implements TaskStore.Listener {
+    static final int TITLE = 1;
+    static final int DESCRIPTION = 2;
+
+    private static final int POSTINGS_SCAN_LIMIT = 20_000;
+    // Bounds the outward scan when matches are plentiful but never the best possible.
+    private static final int MAX_SCANNED = 100_000;
+
+    static final class Hit {
+        final Task task;
+        final int score;
+        final long distance;
+
+        Hit(Task task, int score, long distance) {
+            this.task = task;
+            this.score = score;
+            this.distance = distance;
+        }
+    }
+
+    static final class Result {
+        final String query;
+        final List<Hit> hits;
+        final int candidates;
+        final boolean truncated;
+
+        Result(String query, List<Hit> hits, int candidates, boolean truncated) {
+            this.query = query;
+            this.hits = hits;
+            this.candidates = candidates;
+            this.truncated = truncated;
+        }
+    }
+
+    // Best first: higher score, then nearer to today, then older id.
+    private static final Comparator<Hit> RANK = Comparator.<Hit>comparingInt(h -> -h.score)
+            .thenComparingLong(h -> h.distance)
+            .thenComparingLong(h -> h.task.id);
+
+    private final TaskStore store;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-index");
+        t.setDaemon(true);
+        return t;
+    });
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    SearchIndex(TaskStore store) {
+        this.store = store;
+    }
+
+    void start() {
+        store.addListener(this);
+        executor.execute(() -> {
+            for (DayBucket bucket : store.snapshot().days().values()) {
+                for (Task t : bucket.tasks) index(t);
+            }
+        });
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        executor.execute(() -> {
+            for (TaskChange c : changes) apply(c);
+        });
+    }
+
+    // Top limit hits for query, computed on the index thread.
+    CompletableFuture<Result> search(String query, int limit) {
+        return CompletableFuture.supplyAsync(() -> query(query, limit), executor);
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    private void apply(TaskChange c) {
+        if (c.rule != null) return; // only stored tasks are indexed, not recurring ones
+        if (c.before != null && c.after != null && c.before.title.equals(c.after.title)
+                && c.before.description.equals(c.after.description)) {
+            index(c.after); // same terms, just swap in the new instance
+            return;
+        }
+        if (c.before != null) unindex(c.before);
+        if (c.after != null) index(c.after);
+    }
+
+    private void index(Task t) {
+        forEachTerm(t.title, term -> terms.computeIfAbsent(term, k -> new Postings()).add(t, TITLE));
+        forEachTerm(t.description, term -> terms.computeIfAbsent(term, k -> new Postings()).add(t, DESCRIPTION));
+    }
+
+    private void unindex(Task t) {
+        forEachTerm(t.title, term -> removePosting(term, t.id));
+        forEachTerm(t.description, term -> removePosting(term, t.id));
+    }
+
+    private void removePosting(String term, long id) {
+        Postings p = terms.get(term);
+        if (p != null && p.remove(id) && p.size == 0) terms.remove(term);
+    }
+
+    private Result query(String text, int limit) {
+        List<String> words = new ArrayList<>();
+        forEachTerm(text, term -> {
+            if (!words.contains(term)) words.add(term);
+        });
+        if (words.isEmpty()) return new Result(text, Collections.emptyList(), 0, false);
+
+        // the rarest term drives; the others are checked against each candidate's text
+        String driver = null;
+        long driverSize = Long.MAX_VALUE;
+        for (String w : words) {
+            long size = 0;
+            for (Postings p : prefixRange(w).values()) {
+                size += p.size;
+                if (size >= driverSize) break;
+            }
+            if (size < driverSize) {
+                driver = w;
+                driverSize = size;
+            }
+        }
+        List<String> others = new ArrayList<>(words);
+        others.remove(driver);
+
+        long today = CalendarClock.get().todayEpochDay();
+        Top top = new Top(limit);
+        if (driverSize > POSTINGS_SCAN_LIMIT) return scanOutward(text, words, today, top);
+
+        int candidates = 0;
+        for (Map.Entry<String, Postings> e : prefixRange(driver).entrySet()) {
+            boolean exact = e.getKey().equals(driver);
+            Postings p = e.getValue();
+            for (int i = 0; i < p.slots.length; i++) {
+                Task t = p.slots[i];
+                if (t == null) continue;
+                candidates++;
+                int score = fieldScore(p.fields[i], exact);
+                if (!others.isEmpty()) {
+                    int rest = score(t, others);
+                    if (rest < 0) continue;
+                    score += rest;
+                }
+                long distance = Math.abs(t.epochDay - today);
+                if (top.accepts(score, distance)) top.offer(new Hit(t, score, distance));
+            }
+        }
+        return new Result(text, top.sorted(), candidates, false);
+    }
+
+    // Visits days in order of distance from today. Hits only get farther away, so once every
+    // kept hit has the best score any task could reach, the rest cannot displace them.
+    private Result scanOutward(String text, List<String> words, long today, Top top) {
+        int best = 0;
+        for (String w : words) best += fieldScore(TITLE, terms.containsKey(w));
+        Iterator<Map.Entry<Long, DayBucket>> later = store.range(today, Long.MAX_VALUE).entrySet().iterator();
+        Iterator<Map.Entry<Long, DayBucket>> earlier = store.range(Long.MIN_VALUE, today - 1).descendingMap().entrySet().iterator();
+        Map.Entry<Long, DayBucket> next = later.hasNext() ? later.next() : null;
+        Map.Entry<Long, DayBucket> prev = earlier.hasNext() ? earlier.next() : null;
+        int scanned = 0;
+        while (next != null || prev != null) {
+            Map.Entry<Long, DayBucket> day;
+            if (prev == null || (next != null && next.getKey() - today <= today - prev.getKey())) {
+                day = next;
+                next = later.hasNext() ? later.next() : null;
+            } else {
+                day = prev;
+                prev = earlier.hasNext() ? earlier.next() : null;
+            }
+            if (top.isFull() && top.worst().score >= best) break;
+            if (scanned >= MAX_SCANNED) return new Result(text, top.sorted(), scanned, true);
+            long distance = Math.abs(day.getKey() - today);
+            for (Task t : day.getValue().tasks) {
+                scanned++;
+                int score = score(t, words);
+                if (score >= 0 && top.accepts(score, distance)) top.offer(new Hit(t, score, distance));
+            }
+        }
+        return new Result(text, top.sorted(), scanned, false);
+    }
+
+    private static int fieldScore(int fields, boolean exact) {
+        int score = (fields & TITLE) != 0 ? 4 : 1;
+        return exact ? score + 2 : score;
+    }
+
+    // Summed best match of each word in the task, or -1 if the task lacks one of them.
+    private static int score(Task t, List<String> words) {
+        int score = 0;
+        for (String w : words) {
+            int best = Math.max(matchScore(t.title, w, TITLE), matchScore(t.description, w, DESCRIPTION));
+            if (best < 0) return -1;
+            score += best;
+        }
+        return score;
+    }
+
+    // Best score of a term in text starting with prefix, or -1; matches in place without
+    // splitting, since this runs once per candidate.
+    private static int matchScore(String text, String prefix, int field) {
+        int best = -1;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) i++;
+            if (i - start >= prefix.length() && text.regionMatches(true, start, prefix, 0, prefix.length())) {
+                best = Math.max(best, fieldScore(field, i - start == prefix.length()));
+            }
+        }
+        return best;
+    }
+
+    private SortedMap<String, Postings> prefixRange(String prefix) {
+        return terms.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    // Lower-cased runs of letters and digits.
+    private static void forEachTerm(String text, Consumer<String> sink) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start == -1) {
+                start = i;
+            } else if (!word && start != -1) {
+                sink.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    // The best limit hits seen so far; a task reached through several terms is kept once.
+    private static final class Top {
+        private final int limit;
+        private final PriorityQueue<Hit> heap;
+        private final Map<Long, Hit> byId = new HashMap<>();
+
+        Top(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1, RANK.reversed());
+        }
+
+        void offer(Hit hit) {
+            Hit existing = byId.get(hit.task.id);
+            if (existing != null) {
+                if (RANK.compare(hit, existing) >= 0) return;
+                heap.remove(existing);
+            } else if (heap.size() == limit) {
+                if (RANK.compare(hit, heap.peek()) >= 0) return;
+                byId.remove(heap.poll().task.id);
+            }
+            heap.add(hit);
+            byId.put(hit.task.id, hit);
+        }
+
+        // Cheap pre-check before a Hit is allocated; ties on score and distance still go to offer.
+        boolean accepts(int score, long distance) {
+            if (heap.size() < limit) return true;
+            Hit worst = heap.peek();
+            return score > worst.score || (score == worst.score && distance <= worst.distance);
+        }
+
+        boolean isFull() {
+            return heap.size() == limit;
+        }
+
+        Hit worst() {
+            return heap.peek();
+        }
+
+        List<Hit> sorted() {
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(RANK);
+            return hits;
+        }
+    }
+
+    // Tasks containing one term, in an open-addressing table keyed by task id, with the fields
+    // the term occurs in alongside. Most terms have a handful of tasks, so tables start tiny.
+    private static final class Postings {
+        Task[] slots = new Task[2];
+        byte[] fields = new byte[2];
+        int size;
+
+        void add(Task t, int field) {
+            if ((size + 1) * 2 > slots.length) resize(slots.length * 2);
+            int i = find(slots, t.id);
+            if (slots[i] == null) {
+                size++;
+                fields[i] = 0;
+            }
+            slots[i] = t;
+            fields[i] |= field;
+        }
+
+        boolean remove(long id) {
+            int i = find(slots, id);
+            if (slots[i] == null) return false;
+            int mask = slots.length - 1;
+            // backward-shift deletion keeps probe chains intact without tombstones
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (slots[j] == null) break;
+                int home = slot(slots[j].id, mask);
+                boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!between) {
+                    slots[i] = slots[j];
+                    fields[i] = fields[j];
+                    i = j;
+                }
+            }
+            slots[i] = null;
+            fields[i] = 0;
+            size--;
+            return true;
+        }
+
+        private void resize(int capacity) {
+            Task[] oldSlots = slots;
+            byte[] oldFields = fields;
+            slots = new Task[capacity];
+            fields = new byte[capacity];
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != null) {
+                    int j = find(slots, oldSlots[i].id);
+                    slots[j] = oldSlots[i];
+                    fields[j] = oldFields[i];
+                }
+            }
+        }
+
+        private static int find(Task[] table, long id) {
+            int mask = table.length - 1;
+            int i = slot(id, mask);
+            while (table[i] != null && table[i].id != id) i = (i + 1) & mask;
+            return i;
+        }
+
+        private static int slot(long id, int mask) {
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.*;
+
+// Gets the calendar ready while the login screen is up: a background thread opens sync and
+// the journal (which loads the store), starts the search index build and pre-loads the classes
+// the calendar needs, then the window is built, hidden, on the EDT. Logging in only has to
+// call CalendarUI.open().
+class StartupPipeline {
+    private static final String[] WARM_CLASSES = {
+            "CalendarUI", "CalendarGrid", "DayTaskTableModel", "ReminderScheduler", "NotificationCenter",
+            "WeekView", "AgendaView", "MonthScrollView", "AnalyticsDashboard", "TaskImportExport", "SearchField",
+            "javax.swing.JTable", "javax.swing.JDialog", "javax.swing.JFileChooser", "javax.swing.JScrollPane",
+            "javax.swing.table.DefaultTableCellRenderer", "javax.swing.SwingWorker",
+    };
+
+    private final TaskStore store = new TaskStore();
+    private final SearchIndex search = new SearchIndex(store);
+    private final CompletableFuture<CalendarUI> calendar = new CompletableFuture<>();
+
+    private StartupPipeline() {
+    }
+
+    static StartupPipeline start() {
+        StartupPipeline pipeline = new StartupPipeline();
+        Thread loader = new Thread(pipeline::load, "startup");
+        loader.setDaemon(true);
+        loader.start();
+        return pipeline;
+    }
+
+    // Completes on the EDT once the hidden calendar window is built.
+    CompletableFuture<CalendarUI> calendar() {
+        return calendar;
+    }
+
+    private void load() {
+        try {
+            SyncClient sync = openSync();
+            TaskJournal journal = openJournal();
+            if (journal != null && sync != null) sync.attachJournal(journal);
+            search.start();
+            warmClasses();
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    calendar.complete(new CalendarUI(store, sync, search));
+                } catch (RuntimeException e) {
+                    calendar.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            calendar.completeExceptionally(e);
+        }
+    }
+
+    // Runs before the journal is opened, because the sync client assigns the store's node id.
+    private SyncClient openSync() {
+        try {
+            return SyncClient.fromSystemProperties(store, TaskJournal.defaultDirectory());
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            warn("Team sync could not be started; working offline.\n" + e.getMessage());
+            return null;
+        }
+    }
+
+    // With -Dteamtasker.residentMonths the store is paged, and today's window is brought in
+    // here so the first frame does not wait for the disk. Null if the journal could not be opened.
+    private TaskJournal openJournal() {
+        try {
+            Path dir = TaskJournal.defaultDirectory();
+            MonthPager pager = MonthPager.fromSystemProperties(store, dir);
+            TaskJournal journal = TaskJournal.open(dir, store, pager);
+            journal.onFailure(StartupPipeline::warn);
+            if (pager != null) {
+                long today = CalendarClock.get().todayEpochDay();
+                store.pinResident(today - 1, today + 1);
+            }
+            return journal;
+        } catch (IOException e) {
+            e.printStackTrace();
+            warn("Saved tasks could not be loaded; changes will not be kept.\n" + e.getMessage());
+            return null;
+        }
+    }
+
+    // Loads and links without initializing, so no Swing static state is touched off the EDT.
+    private static void warmClasses() {
+        ClassLoader loader = StartupPipeline.class.getClassLoader();
+        for (String name : WARM_CLASSES) {
+            try {
+                Class.forName(name, false, loader);
+            } catch (ClassNotFoundException | LinkageError ignored) {
+            }
+        }
+    }
+
+    private static void warn(String message) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, message,
+                "TeamTasker", JOptionPane.WARNING_MESSAGE));
+    }
+}
@@ -0,0 +1,492 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Keeps a TaskStore in step with a SyncServer. Local changes are stamped with a Lamport clock
+// and coalesced per task in an outbox that the network thread sends every FLUSH_MILLIS;
+// deltas from the server are applied to the store on that same thread, and the listener skips
+// changes made by it so nothing is echoed back. Frames stay in flight until the server acks
+// them and are queued again after a disconnect.
+//
+// The node id, server epoch, last applied sequence number and clock live in sync.state next to
+// the journal, so a restart or reconnect resumes where it left off instead of downloading the
+// calendar again. Applying a delta only queues its store changes for the journal, so the
+// sequence number is saved once the journal has committed them; after a crash the deltas
+// since are fetched again and reapplied, which is harmless. Unsent changes are kept in
+// sync.pending across restarts.
+//
+// For every live task and rule the client remembers the stamp of the version it holds and the
+// day it is on, which is how a delta that moved a task to another day finds the copy to take
+// away. A removal is remembered only until the server has confirmed it, since the server never
+// relays anything older afterwards. The map is written to sync.versions at every journal
+// checkpoint and on close.
+class SyncClient implements TaskStore.Listener, Closeable {
+    private static final long FLUSH_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private final TaskStore store;
+    private final InetSocketAddress server;
+    private final Path statePath;
+    private final Path pendingPath;
+    private final Path versionsPath;
+    private final int node;
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Long, Version> versions = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Long, SyncDelta> outbox = new LinkedHashMap<>();
+    private final ArrayDeque<List<SyncDelta>> inFlight = new ArrayDeque<>();
+    private final Thread io = new Thread(this::run, "sync-client");
+    private volatile boolean closed;
+    private volatile Consumer<String> statusListener = s -> { };
+    private volatile long epoch;
+    private long lastSeq;
+    // what sync.state records: the last sequence whose store changes the journal has committed
+    private volatile long durableSeq;
+    // {journal sequence, lastSeq} for applied frames the journal has not committed yet
+    private final ArrayDeque<long[]> unjournaled = new ArrayDeque<>();
+    private volatile TaskJournal journal;
+    private boolean welcomed;
+
+    private static final class Version {
+        final long lamport;
+        final int node;
+        final long epochDay;
+        final boolean removed;
+
+        Version(long lamport, int node, long epochDay, boolean removed) {
+            this.lamport = lamport;
+            this.node = node;
+            this.epochDay = epochDay;
+            this.removed = removed;
+        }
+
+        Version(SyncDelta d) {
+            this(d.lamport, d.node, d.epochDay, d.removes());
+        }
+
+        boolean newerThan(long otherLamport, int otherNode) {
+            return lamport != otherLamport ? lamport > otherLamport : node > otherNode;
+        }
+
+        boolean newerThan(SyncDelta d) {
+            return newerThan(d.lamport, d.node);
+        }
+    }
+
+    // Loads the sync state from dir and assigns the store its node id, so this must run
+    // before anything (the journal included) asks the store for ids.
+    SyncClient(TaskStore store, Path dir, InetSocketAddress server) throws IOException {
+        this.store = store;
+        this.server = server;
+        this.statePath = dir.resolve("sync.state");
+        this.pendingPath = dir.resolve("sync.pending");
+        this.versionsPath = dir.resolve("sync.versions");
+        Files.createDirectories(dir);
+        if (Files.exists(statePath)) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(statePath));
+            node = in.getInt();
+            epoch = in.getLong();
+            lastSeq = in.getLong();
+            durableSeq = lastSeq;
+            clock.set(in.getLong());
+        } else {
+            String configured = System.getProperty("teamtasker.node");
+            node = configured != null ? Integer.parseInt(configured) : 1 + new Random().nextInt(TaskStore.MAX_NODE);
+        }
+        store.setNode(node);
+        loadVersions();
+        loadPending();
+        saveState();
+        io.setDaemon(true);
+    }
+
+    // Returns a client for -Dteamtasker.sync=host[:port], or null when sync is not configured.
+    static SyncClient fromSystemProperties(TaskStore store, Path dir) throws IOException {
+        String target = System.getProperty("teamtasker.sync");
+        if (target == null || target.isEmpty()) return null;
+        int colon = target.lastIndexOf(':');
+        String host = colon == -1 ? target : target.substring(0, colon);
+        int port = colon == -1 ? SyncProtocol.DEFAULT_PORT : Integer.parseInt(target.substring(colon + 1));
+        return new SyncClient(store, dir, new InetSocketAddress(host, port));
+    }
+
+    void setStatusListener(Consumer<String> listener) {
+        statusListener = listener;
+    }
+
+    void start() {
+        store.addListener(this);
+        io.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "sync-client-shutdown"));
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        if (Thread.currentThread() == io) return;
+        synchronized (outbox) {
+            for (TaskChange change : changes) {
+                SyncDelta d = SyncDelta.of(change, clock.incrementAndGet(), node);
+                versions.merge(d.id, new Version(d), SyncClient::newer);
+                queue(d);
+            }
+        }
+    }
+
+    // Saves the sequence number as the journal commits what was applied, and the version map
+    // next to each snapshot it writes. Without a journal nothing is durable anyway, and the
+    // sequence number is saved as deltas are applied.
+    void attachJournal(TaskJournal journal) {
+        journal.onCommit(this::journaled);
+        journal.onCheckpoint(this::checkpoint);
+        this.journal = journal;
+    }
+
+    private void checkpoint() {
+        try {
+            saveVersions();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Called on the journal writer once everything up to journalSeq is on disk.
+    private void journaled(long journalSeq) {
+        long seq = -1;
+        synchronized (unjournaled) {
+            while (!unjournaled.isEmpty() && unjournaled.peek()[0] <= journalSeq) seq = unjournaled.poll()[1];
+            if (seq < 0) return;
+            durableSeq = seq;
+        }
+        try {
+            saveState();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // After a frame was applied: the store changes it made have journal sequences up to the
+    // journal's queued sequence now, since listeners run before the store call returns.
+    private void appliedUpTo(long seq) throws IOException {
+        TaskJournal j = journal;
+        if (j == null) {
+            durableSeq = seq;
+            saveState();
+            return;
+        }
+        long needed = j.queuedSeq();
+        synchronized (unjournaled) {
+            long[] last = unjournaled.peekLast();
+            // frames that changed nothing (or a journal that gave up) share an entry
+            if (last != null && last[0] == needed) last[1] = seq;
+            else unjournaled.add(new long[] {needed, seq});
+        }
+        journaled(j.committedSeq());
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        store.removeListener(this);
+        io.interrupt();
+        try {
+            io.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        requeueInFlight();
+        try {
+            saveState();
+            savePending();
+            saveVersions();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void run() {
+        long backoff = 500;
+        while (!closed) {
+            try (Selector selector = Selector.open(); SocketChannel ch = SocketChannel.open()) {
+                status("connecting");
+                ch.connect(server);
+                ch.configureBlocking(false);
+                ch.socket().setTcpNoDelay(true);
+                session(selector, new SyncConnection(ch, ch.register(selector, SelectionKey.OP_READ)));
+            } catch (IOException | RuntimeException e) {
+                if (closed) break;
+                status("offline");
+            } finally {
+                if (welcomed) backoff = 500;
+                welcomed = false;
+                requeueInFlight();
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private void session(Selector selector, SyncConnection conn) throws IOException {
+        conn.send(SyncProtocol.hello(node, epoch, lastSeq));
+        while (!closed) {
+            selector.select(FLUSH_MILLIS);
+            selector.selectedKeys().clear();
+            if (!conn.read()) throw new IOException("Server closed the connection");
+            ByteBuffer frame;
+            while ((frame = conn.nextFrame()) != null) handle(frame);
+            if (welcomed) sendOutbox(conn);
+            conn.flush();
+        }
+    }
+
+    private void handle(ByteBuffer frame) throws IOException {
+        byte type = frame.get();
+        if (type == SyncProtocol.WELCOME) {
+            long serverEpoch = frame.getLong();
+            if (serverEpoch != epoch) {
+                // a server we have not talked to: take its log from the start and offer ours
+                synchronized (unjournaled) {
+                    unjournaled.clear();
+                    durableSeq = 0;
+                }
+                epoch = serverEpoch;
+                lastSeq = 0;
+                uploadLocalTasks();
+            }
+            welcomed = true;
+            saveState();
+            status("synced");
+        } else if (type == SyncProtocol.DELTAS) {
+            apply(SyncProtocol.readDeltas(frame));
+            appliedUpTo(lastSeq);
+        } else if (type == SyncProtocol.ACK) {
+            inFlight.poll();
+        } else {
+            throw new IOException("Unexpected message " + type);
+        }
+    }
+
+    private void sendOutbox(SyncConnection conn) throws IOException {
+        while (inFlight.size() < MAX_IN_FLIGHT) {
+            List<SyncDelta> batch = new ArrayList<>();
+            synchronized (outbox) {
+                Iterator<SyncDelta> it = outbox.values().iterator();
+                while (it.hasNext() && batch.size() < SyncProtocol.MAX_DELTAS_PER_FRAME) {
+                    batch.add(it.next());
+                    it.remove();
+                }
+            }
+            if (batch.isEmpty()) return;
+            inFlight.add(batch);
+            conn.send(SyncProtocol.deltas(batch));
+        }
+    }
+
+    // Applies server deltas last-writer-wins. A delta with the same stamp as our version is our
+    // own coming back and is applied again, which repairs the store if a remote delta landed
+    // between a local edit and its acceptance. New tasks are added in one batch per frame.
+    private void apply(List<SyncDelta> deltas) {
+        List<Task> adds = new ArrayList<>();
+        Set<Long> addIds = new HashSet<>();
+        for (SyncDelta d : deltas) {
+            clock.accumulateAndGet(d.lamport, Math::max);
+            lastSeq = Math.max(lastSeq, d.seq);
+            Version known = versions.get(d.id);
+            if (known != null && known.newerThan(d)) continue;
+            if (d.removes()) {
+                // unless a local edit came in meanwhile, the removal is settled
+                versions.computeIfPresent(d.id, (id, v) -> v.newerThan(d) ? v : null);
+            } else {
+                versions.merge(d.id, new Version(d), SyncClient::newer);
+            }
+            if (addIds.contains(d.id)) {
+                store.addAll(adds);
+                adds.clear();
+                addIds.clear();
+            }
+            if (d.op == SyncDelta.RULE_PUT) {
+                store.putRule(d.rule);
+                continue;
+            }
+            if (d.op == SyncDelta.RULE_REMOVE) {
+                store.removeRule(d.id);
+                continue;
+            }
+            store.ensureResident(d.epochDay, d.epochDay);
+            Task existing = store.find(d.epochDay, d.id);
+            if (d.op == SyncDelta.PUT) {
+                if (known != null && !known.removed && known.epochDay != d.epochDay) {
+                    store.ensureResident(known.epochDay, known.epochDay);
+                    Task moved = store.find(known.epochDay, d.id);
+                    if (moved != null) store.remove(moved);
+                }
+                if (existing == null) {
+                    adds.add(d.task);
+                    addIds.add(d.id);
+                } else if (!sameContent(existing, d.task)) {
+                    store.update(d.task);
+                }
+            } else if (d.op == SyncDelta.DONE) {
+                if (existing != null && existing.done != d.done) store.update(existing.withDone(d.done));
+            } else if (existing != null) {
+                store.remove(existing);
+            }
+        }
+        store.addAll(adds);
+    }
+
+    // First contact with a server: tasks and rules created before sync was enabled carry node 0
+    // ids that other clients may also use, so they get ids of our own, then every task and rule
+    // is offered with the lowest possible stamp, which any version the server already has will
+    // beat.
+    private void uploadLocalTasks() {
+        for (RecurrenceRule rule : new ArrayList<>(store.rules())) {
+            if (TaskStore.nodeOf(rule.id) != 0) continue;
+            store.removeRule(rule.id);
+            store.putRule(rule.withId(store.newId()));
+        }
+        // a month at a time when paged; the days are read before the outbox lock is taken, which
+        // listeners take under the store's, and a change made since is queued with a real stamp
+        // that putIfAbsent leaves alone
+        store.forEachPage(Long.MIN_VALUE, Long.MAX_VALUE, days -> {
+            List<Task> legacy = new ArrayList<>();
+            List<Task> offered = new ArrayList<>();
+            List<Task> renumbered = new ArrayList<>();
+            for (DayBucket bucket : days.values()) {
+                for (Task t : bucket.tasks) {
+                    if (TaskStore.nodeOf(t.id) == 0) {
+                        legacy.add(t);
+                        renumbered.add(new Task(store.newId(), t.title, t.description, t.epochDay,
+                                t.startMinute, t.endMinute, t.done));
+                    } else {
+                        offered.add(t);
+                    }
+                }
+            }
+            store.removeAll(legacy);
+            store.addAll(renumbered);
+            offered.addAll(renumbered);
+            synchronized (outbox) {
+                for (Task t : offered) outbox.putIfAbsent(t.id, SyncDelta.put(t, 0, node));
+            }
+        });
+        synchronized (outbox) {
+            for (RecurrenceRule rule : store.rules()) outbox.putIfAbsent(rule.id, SyncDelta.putRule(rule, 0, node));
+        }
+    }
+
+    // Caller holds the outbox lock.
+    private void queue(SyncDelta d) {
+        SyncDelta prev = outbox.remove(d.id);
+        outbox.put(d.id, prev == null ? d : prev.then(d));
+    }
+
+    // Puts unacknowledged frames back in front of anything queued since.
+    private void requeueInFlight() {
+        if (inFlight.isEmpty()) return;
+        synchronized (outbox) {
+            List<SyncDelta> queued = new ArrayList<>(outbox.values());
+            outbox.clear();
+            for (List<SyncDelta> batch : inFlight) {
+                for (SyncDelta d : batch) queue(d);
+            }
+            for (SyncDelta d : queued) queue(d);
+        }
+        inFlight.clear();
+    }
+
+    private static Version newer(Version a, Version b) {
+        return a.newerThan(b.lamport, b.node) ? a : b;
+    }
+
+    private static boolean sameContent(Task a, Task b) {
+        return a.done == b.done && a.startMinute == b.startMinute && a.endMinute == b.endMinute
+                && a.title.equals(b.title) && a.description.equals(b.description);
+    }
+
+    private void status(String status) {
+        statusListener.accept(status);
+    }
+
+    // Runs on the network thread and the journal writer.
+    private synchronized void saveState() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(28);
+        buf.putInt(node).putLong(epoch).putLong(durableSeq).putLong(clock.get());
+        writeAtomically(statePath, buf.array());
+    }
+
+    private void savePending() throws IOException {
+        List<SyncDelta> pending;
+        synchronized (outbox) {
+            pending = new ArrayList<>(outbox.values());
+        }
+        if (pending.isEmpty()) {
+            Files.deleteIfExists(pendingPath);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(pending.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(pending.size());
+        for (SyncDelta d : pending) d.write(out);
+        writeAtomically(pendingPath, bytes.toByteArray());
+    }
+
+    private void loadPending() throws IOException {
+        if (!Files.exists(pendingPath)) return;
+        List<SyncDelta> pending = SyncProtocol.readDeltas(ByteBuffer.wrap(Files.readAllBytes(pendingPath)));
+        synchronized (outbox) {
+            for (SyncDelta d : pending) {
+                versions.merge(d.id, new Version(d), SyncClient::newer);
+                queue(d);
+            }
+        }
+    }
+
+    private void saveVersions() throws IOException {
+        List<Map.Entry<Long, Version>> entries = new ArrayList<>(versions.entrySet());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entries.size() * 29 + 4);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(entries.size());
+        for (Map.Entry<Long, Version> e : entries) {
+            Version v = e.getValue();
+            out.writeLong(e.getKey());
+            out.writeLong(v.lamport);
+            out.writeInt(v.node);
+            out.writeLong(v.epochDay);
+            out.writeBoolean(v.removed);
+        }
+        writeAtomically(versionsPath, bytes.toByteArray());
+    }
+
+    private void loadVersions() throws IOException {
+        if (!Files.exists(versionsPath)) return;
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(versionsPath));
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            long id = in.getLong();
+            versions.put(id, new Version(in.getLong(), in.getInt(), in.getLong(), in.get() != 0));
+        }
+    }
+
+    private static void writeAtomically(Path path, byte[] bytes) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, bytes);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+
+// A non-blocking channel with frame reassembly on the way in and a write queue on the way out.
+// Only touched by the thread that runs its selector.
+final class SyncConnection {
+    final SocketChannel channel;
+    final SelectionKey key;
+    private ByteBuffer in = ByteBuffer.allocate(64 << 10);
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    private long queuedBytes;
+
+    SyncConnection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    // Returns false once the peer has closed its end.
+    boolean read() throws IOException {
+        return channel.read(in) != -1;
+    }
+
+    // The next complete frame, positioned at its type byte, or null if more bytes are needed.
+    ByteBuffer nextFrame() throws IOException {
+        in.flip();
+        int needed = 0;
+        try {
+            if (in.remaining() < 4) return null;
+            int len = in.getInt(in.position());
+            if (len <= 0 || len > SyncProtocol.MAX_FRAME) throw new IOException("Bad frame length " + len);
+            if (in.remaining() < 4 + len) {
+                needed = 4 + len;
+                return null;
+            }
+            in.position(in.position() + 4);
+            byte[] frame = new byte[len];
+            in.get(frame);
+            return ByteBuffer.wrap(frame);
+        } finally {
+            in.compact();
+            if (needed > in.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Integer.highestOneBit(needed - 1) << 1);
+                in.flip();
+                bigger.put(in);
+                in = bigger;
+            }
+        }
+    }
+
+    void send(ByteBuffer frame) throws IOException {
+        out.add(frame);
+        queuedBytes += frame.remaining();
+        flush();
+    }
+
+    // Writes as much as the socket takes and asks for OP_WRITE only while bytes are left over.
+    void flush() throws IOException {
+        while (!out.isEmpty()) {
+            ByteBuffer head = out.peek();
+            int n = channel.write(head);
+            queuedBytes -= n;
+            if (head.hasRemaining()) break;
+            out.poll();
+        }
+        int ops = out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (key.isValid() && key.interestOps() != ops) key.interestOps(ops);
+    }
+
+    long queuedBytes() {
+        return queuedBytes;
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// One task change as it travels between sync clients and the server. Every delta carries a
+// Lamport stamp (lamport, node); for the same task id the higher stamp wins, with the node id
+// breaking ties, so every replica settles on the same version whatever order deltas arrive in.
+//
+// Recurrence rules travel whole, as the journal writes them: RULE_PUT when a rule or one of its
+// occurrences changes (a tick or a cancellation is in the rule's done and exception days), and
+// RULE_REMOVE when it is deleted. Rules share the id space with tasks, so they are stamped and
+// compacted per id like tasks; two replicas editing the same rule at once keep the later edit
+// whole, including its ticks.
+final class SyncDelta {
+    static final byte PUT = 1;
+    static final byte DONE = 2;
+    static final byte REMOVE = 3;
+    static final byte RULE_PUT = 4;
+    static final byte RULE_REMOVE = 5;
+
+    final byte op;
+    final long seq;        // assigned by the server; 0 until accepted
+    final long lamport;
+    final int node;
+    final long id;
+    final long epochDay;   // the rule's start day for rule deltas
+    final Task task;       // full task for PUT, and for DONE when it is known locally
+    final boolean done;
+    final RecurrenceRule rule; // RULE_PUT only
+
+    private SyncDelta(byte op, long seq, long lamport, int node, long id, long epochDay, Task task, boolean done) {
+        this(op, seq, lamport, node, id, epochDay, task, done, null);
+    }
+
+    private SyncDelta(byte op, long seq, long lamport, int node, long id, long epochDay, Task task, boolean done,
+                      RecurrenceRule rule) {
+        this.op = op;
+        this.seq = seq;
+        this.lamport = lamport;
+        this.node = node;
+        this.id = id;
+        this.epochDay = epochDay;
+        this.task = task;
+        this.done = done;
+        this.rule = rule;
+    }
+
+    static SyncDelta put(Task task, long lamport, int node) {
+        return new SyncDelta(PUT, 0, lamport, node, task.id, task.epochDay, task, task.done);
+    }
+
+    static SyncDelta putRule(RecurrenceRule rule, long lamport, int node) {
+        return new SyncDelta(RULE_PUT, 0, lamport, node, rule.id, rule.startDay, null, false, rule);
+    }
+
+    static SyncDelta of(TaskChange change, long lamport, int node) {
+        if (change.rule != null) {
+            RecurrenceRule r = change.rule;
+            if (change.kind == TaskChange.Kind.RULE_REMOVED) {
+                return new SyncDelta(RULE_REMOVE, 0, lamport, node, r.id, r.startDay, null, false);
+            }
+            return putRule(r, lamport, node);
+        }
+        Task t = change.task();
+        if (change.kind == TaskChange.Kind.REMOVED) {
+            return new SyncDelta(REMOVE, 0, lamport, node, t.id, t.epochDay, null, false);
+        }
+        if (change.onlyDoneChanged()) {
+            return new SyncDelta(DONE, 0, lamport, node, t.id, t.epochDay, t, t.done);
+        }
+        return put(t, lamport, node);
+    }
+
+    SyncDelta withSeq(long seq) {
+        return new SyncDelta(op, seq, lamport, node, id, epochDay, task, done, rule);
+    }
+
+    // True for REMOVE and RULE_REMOVE.
+    boolean removes() {
+        return op == REMOVE || op == RULE_REMOVE;
+    }
+
+    // True if this delta should replace other for the same task.
+    boolean newerThan(SyncDelta other) {
+        return lamport != other.lamport ? lamport > other.lamport : node > other.node;
+    }
+
+    boolean sameStamp(SyncDelta other) {
+        return lamport == other.lamport && node == other.node;
+    }
+
+    // Folds a later local change into this one while both wait in the outbox. A tick on top of
+    // a pending PUT must stay a PUT, or the receiver would never see the task body.
+    SyncDelta then(SyncDelta later) {
+        if (later.op == DONE && op == PUT) {
+            return new SyncDelta(PUT, 0, later.lamport, later.node, id, epochDay, task.withDone(later.done), later.done);
+        }
+        return later;
+    }
+
+    // A DONE applied on top of a known PUT, kept as a PUT so it still carries the body.
+    SyncDelta materialize(SyncDelta previous) {
+        if (op == DONE && previous != null && previous.op == PUT && previous.epochDay == epochDay) {
+            return new SyncDelta(PUT, seq, lamport, node, id, epochDay, previous.task.withDone(done), done);
+        }
+        return this;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(op);
+        out.writeLong(seq);
+        out.writeLong(lamport);
+        out.writeInt(node);
+        out.writeLong(id);
+        out.writeLong(epochDay);
+        if (op == PUT) {
+            out.writeShort(task.startMinute);
+            out.writeShort(task.endMinute);
+            out.writeBoolean(task.done);
+            writeString(out, task.title);
+            writeString(out, task.description);
+        } else if (op == DONE) {
+            out.writeBoolean(done);
+        } else if (op == RULE_PUT) {
+            TaskJournal.writeRuleBody(out, rule);
+        }
+    }
+
+    static SyncDelta read(ByteBuffer in) throws IOException {
+        byte op = in.get();
+        long seq = in.getLong();
+        long lamport = in.getLong();
+        int node = in.getInt();
+        long id = in.getLong();
+        long epochDay = in.getLong();
+        switch (op) {
+            case PUT: {
+                int start = in.getShort();
+                int end = in.getShort();
+                boolean done = in.get() != 0;
+                String title = readString(in);
+                String description = readString(in);
+                Task task = new Task(id, title, description, epochDay, start, end, done);
+                return new SyncDelta(op, seq, lamport, node, id, epochDay, task, done);
+            }
+            case DONE:
+                return new SyncDelta(op, seq, lamport, node, id, epochDay, null, in.get() != 0);
+            case REMOVE:
+            case RULE_REMOVE:
+                return new SyncDelta(op, seq, lamport, node, id, epochDay, null, false);
+            case RULE_PUT:
+                return new SyncDelta(op, seq, lamport, node, id, epochDay, null, false,
+                        TaskJournal.readRule(in, id, epochDay));
+            default:
+                throw new IOException("Unknown delta op " + op);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int len = in.getInt();
+        if (len < 0 || len > in.remaining()) throw new IOException("Bad string length " + len);
+        byte[] b = new byte[len];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.List;
+
+// Wire format shared by SyncServer and SyncClient. Every message is a frame
+//
+//   [int length][byte type][payload]
+//
+// where length counts the type byte and the payload. The conversation is
+//
+//   client -> HELLO   node, server epoch last seen (0 if none), last sequence number applied
+//   server -> WELCOME server epoch, head sequence number
+//   server -> DELTAS  everything after the client's sequence number, then live changes
+//   client -> DELTAS  batched local changes; the server answers each frame with an ACK
+//
+// The epoch identifies the server's log; a client that presents a different one starts from
+// sequence 0 and uploads its local tasks.
+final class SyncProtocol {
+    static final byte HELLO = 1;
+    static final byte WELCOME = 2;
+    static final byte DELTAS = 3;
+    static final byte ACK = 4;
+
+    static final int DEFAULT_PORT = 7420;
+    static final int MAX_FRAME = 32 << 20;
+    static final int MAX_DELTAS_PER_FRAME = 4096;
+
+    private SyncProtocol() {
+    }
+
+    interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static ByteBuffer frame(byte type, Body body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeByte(type);
+        body.write(out);
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        buf.putInt(0, buf.capacity() - 4);
+        return buf;
+    }
+
+    static ByteBuffer hello(int node, long epoch, long lastSeq) throws IOException {
+        return frame(HELLO, out -> {
+            out.writeInt(node);
+            out.writeLong(epoch);
+            out.writeLong(lastSeq);
+        });
+    }
+
+    static ByteBuffer welcome(long epoch, long headSeq) throws IOException {
+        return frame(WELCOME, out -> {
+            out.writeLong(epoch);
+            out.writeLong(headSeq);
+        });
+    }
+
+    static ByteBuffer ack() throws IOException {
+        return frame(ACK, out -> { });
+    }
+
+    static ByteBuffer deltas(Collection<SyncDelta> deltas) throws IOException {
+        return frame(DELTAS, out -> {
+            out.writeInt(deltas.size());
+            for (SyncDelta d : deltas) d.write(out);
+        });
+    }
+
+    static List<SyncDelta> readDeltas(ByteBuffer in) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) throw new IOException("Bad delta count " + count);
+        List<SyncDelta> deltas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) deltas.add(SyncDelta.read(in));
+        return deltas;
+    }
+}
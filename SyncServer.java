@@ -0,0 +1,299 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Relays task deltas between TeamTasker clients. Run it next to the clients for a shared
+// calendar on one box:
+//
+//   java -cp out SyncServer [--port 7420] [--data sync-data]
+//   java -Dteamtasker.sync=localhost:7420 -Dteamtasker.data.dir=client1 -cp out TeamTaskerApp
+//
+// The server keeps a compacted log: for every task only the newest accepted delta, ordered by
+// sequence number, so a task moved to another day leaves nothing behind on the old one. A
+// reconnecting client asks for everything after the last sequence number it applied and gets
+// only what changed, however long it was away. Each peer is fed from the log as its socket
+// drains, so a slow client falls behind on its own and sees repeated edits of a task collapsed
+// rather than holding up the others.
+//
+// Deltas are last-writer-wins per task on the (lamport, node) stamp; older ones are dropped
+// here and never reach the log. Accepted deltas go to every client, the sender included, which
+// is how a client learns that its own edit won a race with an incoming one.
+//
+// With --data the log is appended to a file and reloaded on start; without it the server
+// starts a fresh epoch each run and clients upload what they have. Records in the file carry a
+// CRC, and loading stops at the first one that does not check out: a torn tail from a crash
+// mid-append is cut off rather than failing the start.
+public class SyncServer {
+    private static final int LOG_MAGIC = 0x54545332; // "TTS2"
+    private static final int OLD_LOG_MAGIC = 0x54545359; // "TTSY", records without a CRC
+    private static final long LOW_WATER = 1 << 20;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Map<Long, SyncDelta> latest = new HashMap<>();
+    private final TreeMap<Long, SyncDelta> log = new TreeMap<>();
+    private final List<Peer> peers = new ArrayList<>();
+    private final Path logPath;
+    private FileChannel logFile;
+    private long fileRecords;
+    private long epoch;
+    private long seq;
+
+    private static final class Peer {
+        final SyncConnection conn;
+        int node = -1;
+        long cursor;
+
+        Peer(SyncConnection conn) {
+            this.conn = conn;
+        }
+    }
+
+    SyncServer(InetSocketAddress address, Path dataDir) throws IOException {
+        logPath = dataDir == null ? null : dataDir.resolve("sync-server.log");
+        epoch = new Random().nextLong() & Long.MAX_VALUE | 1;
+        if (logPath != null) {
+            Files.createDirectories(dataDir);
+            loadLog();
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = SyncProtocol.DEFAULT_PORT;
+        Path data = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--data":
+                    data = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        SyncServer s = new SyncServer(new InetSocketAddress(port), data);
+        System.out.println("TeamTasker sync server on port " + port + ", epoch " + s.epoch + ", "
+                + s.log.size() + " log entries" + (data == null ? " (in memory)" : ""));
+        s.run();
+    }
+
+    void run() throws IOException {
+        while (server.isOpen()) {
+            selector.select();
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Peer peer = (Peer) key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        if (!peer.conn.read()) {
+                            drop(peer, "closed");
+                            continue;
+                        }
+                        ByteBuffer frame;
+                        while ((frame = peer.conn.nextFrame()) != null) handle(peer, frame);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        peer.conn.flush();
+                        pump(peer);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    drop(peer, e.toString());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.socket().setTcpNoDelay(true);
+        SelectionKey key = ch.register(selector, SelectionKey.OP_READ);
+        Peer peer = new Peer(new SyncConnection(ch, key));
+        key.attach(peer);
+        peers.add(peer);
+    }
+
+    private void drop(Peer peer, String why) {
+        peer.conn.close();
+        peers.remove(peer);
+        if (peer.node >= 0) System.out.println("node " + peer.node + " disconnected: " + why);
+    }
+
+    private void handle(Peer peer, ByteBuffer frame) throws IOException {
+        byte type = frame.get();
+        if (type == SyncProtocol.HELLO) {
+            peer.node = frame.getInt();
+            long clientEpoch = frame.getLong();
+            long lastSeq = frame.getLong();
+            peer.cursor = clientEpoch == epoch ? Math.min(lastSeq, seq) : 0;
+            System.out.println("node " + peer.node + " connected, resuming after " + peer.cursor + " of " + seq);
+            peer.conn.send(SyncProtocol.welcome(epoch, seq));
+            pump(peer);
+        } else if (type == SyncProtocol.DELTAS && peer.node >= 0) {
+            List<SyncDelta> accepted = accept(SyncProtocol.readDeltas(frame));
+            if (!accepted.isEmpty()) append(accepted);
+            peer.conn.send(SyncProtocol.ack());
+            for (Peer p : new ArrayList<>(peers)) {
+                try {
+                    pump(p);
+                } catch (IOException e) {
+                    drop(p, e.toString());
+                }
+            }
+        } else {
+            throw new IOException("Unexpected message " + type);
+        }
+    }
+
+    // Sends log entries after the peer's cursor while its socket keeps up.
+    private void pump(Peer peer) throws IOException {
+        if (peer.node < 0) return;
+        while (peer.conn.queuedBytes() < LOW_WATER) {
+            List<SyncDelta> chunk = new ArrayList<>();
+            for (SyncDelta d : log.tailMap(peer.cursor, false).values()) {
+                chunk.add(d);
+                if (chunk.size() == SyncProtocol.MAX_DELTAS_PER_FRAME) break;
+            }
+            if (chunk.isEmpty()) return;
+            peer.cursor = chunk.get(chunk.size() - 1).seq;
+            peer.conn.send(SyncProtocol.deltas(chunk));
+        }
+    }
+
+    private List<SyncDelta> accept(List<SyncDelta> incoming) {
+        List<SyncDelta> accepted = new ArrayList<>(incoming.size());
+        for (SyncDelta d : incoming) {
+            SyncDelta current = latest.get(d.id);
+            if (current != null && !d.newerThan(current)) continue;
+            SyncDelta stored = d.materialize(current).withSeq(++seq);
+            record(stored);
+            accepted.add(stored);
+        }
+        return accepted;
+    }
+
+    private void record(SyncDelta d) {
+        SyncDelta replaced = latest.put(d.id, d);
+        if (replaced != null) log.remove(replaced.seq);
+        log.put(d.seq, d);
+    }
+
+    // ---- persistence ----
+
+    private void loadLog() throws IOException {
+        if (!Files.exists(logPath)) {
+            rewriteLog();
+            return;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(logPath));
+        int magic = in.remaining() < 12 ? 0 : in.getInt();
+        if (magic == OLD_LOG_MAGIC) {
+            // nothing in it can be trusted past a torn record, so start a fresh epoch and let
+            // the clients upload what they have
+            System.out.println("Replacing sync log " + logPath + " from an older version");
+            rewriteLog();
+            return;
+        }
+        if (magic != LOG_MAGIC) throw new IOException("Unrecognized sync log " + logPath);
+        epoch = in.getLong();
+        long valid = in.position();
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= 8) {
+            int len = in.getInt();
+            int sum = in.getInt();
+            if (len <= 0 || len > in.remaining()) break;
+            ByteBuffer record = in.slice();
+            record.limit(len);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != sum) break;
+            SyncDelta d;
+            try {
+                d = SyncDelta.read(record);
+            } catch (RuntimeException e) {
+                break;
+            }
+            in.position(in.position() + len);
+            record(d);
+            seq = Math.max(seq, d.seq);
+            fileRecords++;
+            valid = in.position();
+        }
+        logFile = FileChannel.open(logPath, StandardOpenOption.WRITE);
+        logFile.truncate(valid);
+        logFile.position(valid);
+    }
+
+    private void append(List<SyncDelta> deltas) throws IOException {
+        if (logFile == null) return;
+        if (fileRecords + deltas.size() > 2 * log.size() + 100_000) {
+            rewriteLog();
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(deltas.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeRecords(out, deltas);
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        while (buf.hasRemaining()) logFile.write(buf);
+        logFile.force(false);
+        fileRecords += deltas.size();
+    }
+
+    // Writes the compacted log to a fresh file, which also drops superseded records.
+    private void rewriteLog() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(LOG_MAGIC);
+        out.writeLong(epoch);
+        writeRecords(out, log.values());
+        Path tmp = logPath.resolveSibling("sync-server.log.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        if (logFile != null) logFile.close();
+        Files.move(tmp, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logFile = FileChannel.open(logPath, StandardOpenOption.WRITE);
+        logFile.position(logFile.size());
+        fileRecords = log.size();
+    }
+
+    private static void writeRecords(DataOutputStream out, Collection<SyncDelta> deltas) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+        DataOutputStream r = new DataOutputStream(record);
+        CRC32 crc = new CRC32();
+        for (SyncDelta d : deltas) {
+            record.reset();
+            d.write(r);
+            crc.reset();
+            crc.update(record.toByteArray());
+            out.writeInt(record.size());
+            out.writeInt((int) crc.getValue());
+            record.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.time.LocalDate;
+import java.util.Comparator;
+
+class Task {
+    static final int NO_TIME = -1;
+
+    // Day order for lists: all-day tasks first (NO_TIME sorts lowest), then by start time.
+    static final Comparator<Task> BY_START = Comparator.<Task>comparingInt(t -> t.startMinute)
+            .thenComparing(t -> t.title);
+
+    final long id;
+    final String title;
+    final String description;
+    final long epochDay;
+    final int startMinute;
+    final int endMinute;
+    final boolean done;
+
+    Task(long id, String title, String description, long epochDay, int startMinute, int endMinute, boolean done) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.epochDay = epochDay;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+        this.done = done;
+    }
+
+    Task withDone(boolean done) {
+        return done == this.done ? this : new Task(id, title, description, epochDay, startMinute, endMinute, done);
+    }
+
+    Task withDay(long epochDay) {
+        return epochDay == this.epochDay ? this : new Task(id, title, description, epochDay, startMinute, endMinute, done);
+    }
+
+    // Same id and fields. Tasks are compared this way rather than by identity, since a packed
+    // day (CompactTaskList) builds a new Task on every read.
+    boolean sameAs(Task other) {
+        return id == other.id && epochDay == other.epochDay && startMinute == other.startMinute
+                && endMinute == other.endMinute && done == other.done
+                && title.equals(other.title) && description.equals(other.description);
+    }
+
+    // Overdue once its day has passed, or on its day once the end minute has passed.
+    boolean isPastDue(long todayEpochDay, int nowMinute) {
+        if (epochDay < todayEpochDay) return true;
+        return epochDay == todayEpochDay && endMinute != NO_TIME && nowMinute > endMinute;
+    }
+
+    LocalDate date() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    String text() {
+        return String.format("\uD83D\uDCCC %s (%s-%s): %s", // pushpin
+                title, formatMinute(startMinute), formatMinute(endMinute), description);
+    }
+
+    // "09:00-10:30  Title" for one-line lists.
+    String line() {
+        if (startMinute == NO_TIME) return title;
+        return formatMinute(startMinute) + (endMinute == NO_TIME ? "" : "-" + formatMinute(endMinute)) + "  " + title;
+    }
+
+    static String formatMinute(int minute) {
+        if (minute == NO_TIME) return "";
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+
+    // Parses "H:mm"/"HH:mm" into minute-of-day, or NO_TIME when blank or malformed.
+    static int parseMinute(String text) {
+        if (text == null) return NO_TIME;
+        int colon = text.indexOf(':');
+        if (colon == -1) return NO_TIME;
+        try {
+            int h = Integer.parseInt(text.substring(0, colon).trim());
+            int m = Integer.parseInt(text.substring(colon + 1).trim());
+            if (h < 0 || h > 23 || m < 0 || m > 59) return NO_TIME;
+            return h * 60 + m;
+        } catch (NumberFormatException e) {
+            return NO_TIME;
+        }
+    }
+}
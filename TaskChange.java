@@ -0,0 +1,67 @@
+// A change to one task, or to a recurrence rule. RULE_PUT and RULE_REMOVED carry only the
+// rule and may affect any number of days. Ticking or cancelling a single occurrence is an
+// UPDATED or REMOVED change for that day's task that also carries the rule as it is now.
+class TaskChange {
+    enum Kind { ADDED, UPDATED, REMOVED, RULE_PUT, RULE_REMOVED }
+
+    final Kind kind;
+    final Task before;
+    final Task after;
+    final RecurrenceRule rule;
+
+    private TaskChange(Kind kind, Task before, Task after, RecurrenceRule rule) {
+        this.kind = kind;
+        this.before = before;
+        this.after = after;
+        this.rule = rule;
+    }
+
+    static TaskChange added(Task task) {
+        return new TaskChange(Kind.ADDED, null, task, null);
+    }
+
+    static TaskChange updated(Task before, Task after) {
+        return new TaskChange(Kind.UPDATED, before, after, null);
+    }
+
+    static TaskChange removed(Task task) {
+        return new TaskChange(Kind.REMOVED, task, null, null);
+    }
+
+    static TaskChange occurrenceUpdated(Task before, Task after, RecurrenceRule rule) {
+        return new TaskChange(Kind.UPDATED, before, after, rule);
+    }
+
+    static TaskChange occurrenceRemoved(Task task, RecurrenceRule rule) {
+        return new TaskChange(Kind.REMOVED, task, null, rule);
+    }
+
+    static TaskChange rulePut(RecurrenceRule rule) {
+        return new TaskChange(Kind.RULE_PUT, null, null, rule);
+    }
+
+    static TaskChange ruleRemoved(RecurrenceRule rule) {
+        return new TaskChange(Kind.RULE_REMOVED, null, null, rule);
+    }
+
+    // True for RULE_PUT and RULE_REMOVED, which have no single task or day.
+    boolean isRuleChange() {
+        return kind == Kind.RULE_PUT || kind == Kind.RULE_REMOVED;
+    }
+
+    // The task as it is after the change, or as it was for a removal; null for rule changes.
+    Task task() {
+        return after != null ? after : before;
+    }
+
+    long epochDay() {
+        return task().epochDay;
+    }
+
+    // True for an update that only ticked or unticked the task.
+    boolean onlyDoneChanged() {
+        return kind == Kind.UPDATED && before.epochDay == after.epochDay
+                && before.startMinute == after.startMinute && before.endMinute == after.endMinute
+                && before.title.equals(after.title) && before.description.equals(after.description);
+    }
+}
@@ -0,0 +1,214 @@
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Store changes as a Flow.Publisher for tools outside the calendar (bots, audit logs). Each
+// change gets a sequence number, starting at 1 for the process, and the last REPLAY events are
+// kept in a ring shared by every subscriber, which reads it through its own cursor. The store
+// listener only appends to the ring and schedules deliveries, so publishing never waits on a
+// subscriber, whichever thread made the change (EDT, reminder scheduler, sync).
+//
+// Delivery runs on the feed's executor, serially per subscriber and only as far as it has
+// requested. Each subscriber has a lag limit (at most REPLAY), which is its buffer: one that
+// falls further behind, or asks to replay from further back, gets onError(Overflow) and is
+// dropped. It can subscribe again from the sequence in the error to get what is still retained.
+class TaskChangeFeed implements Flow.Publisher<TaskChangeFeed.Event>, TaskStore.Listener {
+    static final int REPLAY = 1 << 14;
+    static final int DEFAULT_MAX_LAG = 4096;
+
+    static final class Event {
+        final long seq;
+        final long millis; // CalendarClock time of publication
+        final TaskChange change;
+
+        Event(long seq, long millis, TaskChange change) {
+            this.seq = seq;
+            this.millis = millis;
+            this.change = change;
+        }
+
+        TaskChange.Kind kind() {
+            return change.kind;
+        }
+
+        @Override
+        public String toString() {
+            Task t = change.task();
+            return "#" + seq + " " + change.kind + (t != null ? " " + t.id + "@" + t.date() : " rule " + change.rule.id);
+        }
+    }
+
+    // The subscriber was too far behind, or asked for events that are no longer retained.
+    static final class Overflow extends IllegalStateException {
+        final long nextSeq; // the first sequence it did not get
+
+        Overflow(String message, long nextSeq) {
+            super(message);
+            this.nextSeq = nextSeq;
+        }
+    }
+
+    private final Executor executor;
+    private final Event[] ring = new Event[REPLAY];
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // guarded by ring
+    private long nextSeq = 1;
+
+    TaskChangeFeed(Executor executor) {
+        this.executor = executor;
+    }
+
+    TaskChangeFeed() {
+        this(defaultExecutor());
+    }
+
+    private static ExecutorService defaultExecutor() {
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "task-feed-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // The sequence the next change will get.
+    long nextSeq() {
+        synchronized (ring) {
+            return nextSeq;
+        }
+    }
+
+    // Live changes only, from the next one on.
+    @Override
+    public void subscribe(Flow.Subscriber<? super Event> subscriber) {
+        subscribe(subscriber, nextSeq());
+    }
+
+    // Replays retained events from fromSeq on, then continues live.
+    void subscribe(Flow.Subscriber<? super Event> subscriber, long fromSeq) {
+        subscribe(subscriber, fromSeq, DEFAULT_MAX_LAG);
+    }
+
+    void subscribe(Flow.Subscriber<? super Event> subscriber, long fromSeq, int maxLag) {
+        Objects.requireNonNull(subscriber);
+        if (maxLag <= 0 || maxLag > REPLAY) throw new IllegalArgumentException("maxLag " + maxLag);
+        Subscription s = new Subscription(subscriber, fromSeq, maxLag);
+        subscriptions.add(s);
+        executor.execute(() -> {
+            subscriber.onSubscribe(s);
+            s.subscribed = true;
+            s.signal();
+        });
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Called under the store's stripe locks: record and hand off, nothing else.
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        long millis = CalendarClock.get().millis();
+        long last;
+        synchronized (ring) {
+            for (TaskChange change : changes) {
+                ring[(int) (nextSeq & (REPLAY - 1))] = new Event(nextSeq, millis, change);
+                nextSeq++;
+            }
+            last = nextSeq;
+        }
+        for (Subscription s : subscriptions) {
+            // only subscribers with demand, or about to overflow, need a delivery run
+            if (s.demand.get() > 0 || last - s.cursor > s.maxLag) s.signal();
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Event> subscriber;
+        private final int maxLag;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile long cursor; // next sequence to deliver; written by the delivery run only
+        private volatile boolean subscribed;
+        private volatile boolean done;
+        private volatile Throwable error; // an invalid request, reported by the delivery run
+
+        Subscription(Flow.Subscriber<? super Event> subscriber, long fromSeq, int maxLag) {
+            this.subscriber = subscriber;
+            this.maxLag = maxLag;
+            this.cursor = Math.max(fromSeq, 1);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("request(" + n + ")");
+            } else {
+                demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (subscribed && !done && wip.getAndIncrement() == 0) executor.execute(this::drain);
+        }
+
+        // One run at a time per subscriber; a signal during the run makes it loop again.
+        private void drain() {
+            int missed = 1;
+            List<Event> batch = new ArrayList<>();
+            do {
+                while (!done) {
+                    if (error != null) {
+                        fail(error);
+                        break;
+                    }
+                    long from = cursor;
+                    long want = demand.get();
+                    long behind;
+                    batch.clear();
+                    synchronized (ring) {
+                        behind = nextSeq - from;
+                        // within maxLag the ring still holds every event from the cursor on
+                        long to = behind > maxLag ? from : Math.min(nextSeq, from + Math.min(want, 256));
+                        for (long seq = from; seq < to; seq++) batch.add(ring[(int) (seq & (REPLAY - 1))]);
+                    }
+                    if (behind > maxLag) {
+                        fail(new Overflow("Subscriber is " + behind + " events behind", from));
+                        break;
+                    }
+                    if (batch.isEmpty()) break;
+                    for (Event e : batch) {
+                        if (done) break;
+                        cursor = e.seq + 1;
+                        demand.decrementAndGet();
+                        try {
+                            subscriber.onNext(e);
+                        } catch (RuntimeException ex) {
+                            fail(ex);
+                        }
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void fail(Throwable t) {
+            if (done) return;
+            cancel();
+            subscriber.onError(t);
+        }
+    }
+}
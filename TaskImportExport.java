@@ -0,0 +1,362 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.*;
+import java.util.*;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+// Streams tasks between the store and .ics / .csv files one record at a time, so memory use
+// does not depend on the file size. Imports are handed to the store in batches via addAll.
+//
+// CSV columns: date,start,end,title,description,done  (date as yyyy-MM-dd, times as HH:mm)
+class TaskImportExport {
+    static final int BATCH_SIZE = 50_000;
+
+    private static final String CSV_HEADER = "date,start,end,title,description,done";
+
+    static final class Result {
+        final long imported;
+        final long skipped;
+
+        Result(long imported, long skipped) {
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+    }
+
+    static boolean isCalendarFile(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".ics");
+    }
+
+    // Reads file (iCalendar when it ends in .ics, CSV otherwise) into store; progress receives
+    // the running count after each batch.
+    static Result importFile(Path file, TaskStore store, LongConsumer progress) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Importer importer = new Importer(store, progress);
+            if (isCalendarFile(file)) {
+                readIcs(in, importer);
+            } else {
+                readCsv(in, importer);
+            }
+            importer.flush();
+            return new Result(importer.imported, importer.skipped);
+        }
+    }
+
+    // Writes every stored task, reading a paged store a month at a time; not for the EDT.
+    static long exportFile(Path file, TaskStore store) throws IOException {
+        long[] count = {0};
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            boolean ics = isCalendarFile(file);
+            if (ics) {
+                out.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//TeamTasker//EN\r\n");
+            } else {
+                out.write(CSV_HEADER);
+                out.newLine();
+            }
+            try {
+                store.forEachPage(Long.MIN_VALUE, Long.MAX_VALUE, days -> {
+                    try {
+                        for (DayBucket bucket : days.values()) {
+                            for (Task t : bucket.tasks) {
+                                if (ics) writeIcsEvent(out, t);
+                                else writeCsvRow(out, t);
+                                count[0]++;
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (ics) out.write("END:VCALENDAR\r\n");
+        }
+        return count[0];
+    }
+
+    private static final class Importer {
+        private final TaskStore store;
+        private final LongConsumer progress;
+        private final List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        long imported;
+        long skipped;
+
+        Importer(TaskStore store, LongConsumer progress) {
+            this.store = store;
+            this.progress = progress;
+        }
+
+        void accept(String title, String description, LocalDate date, int start, int end, boolean done) {
+            if (date == null) {
+                skipped++;
+                return;
+            }
+            batch.add(new Task(store.newId(), title, description, date.toEpochDay(), start, end, done));
+            if (batch.size() == BATCH_SIZE) flush();
+        }
+
+        void flush() {
+            if (batch.isEmpty()) return;
+            store.addAll(batch);
+            imported += batch.size();
+            batch.clear();
+            progress.accept(imported);
+        }
+    }
+
+    // ---- CSV ----
+
+    private static void readCsv(BufferedReader in, Importer importer) throws IOException {
+        List<String> fields = new ArrayList<>(6);
+        boolean first = true;
+        while (readCsvRecord(in, fields)) {
+            if (first) {
+                first = false;
+                if (!fields.isEmpty() && fields.get(0).equalsIgnoreCase("date")) continue;
+            }
+            if (fields.size() < 4) {
+                importer.skipped++;
+                continue;
+            }
+            LocalDate date = parseIsoDate(fields.get(0).trim());
+            String description = fields.size() > 4 ? fields.get(4) : "";
+            boolean done = fields.size() > 5 && Boolean.parseBoolean(fields.get(5).trim());
+            importer.accept(fields.get(3), description, date,
+                    Task.parseMinute(fields.get(1)), Task.parseMinute(fields.get(2)), done);
+        }
+    }
+
+    // Reads one RFC 4180 record into fields; quoted fields may contain commas, "" and newlines.
+    private static boolean readCsvRecord(BufferedReader in, List<String> fields) throws IOException {
+        fields.clear();
+        String line = in.readLine();
+        if (line == null) return false;
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) break;
+            line = in.readLine();
+            if (line == null) break;
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return true;
+    }
+
+    private static void writeCsvRow(BufferedWriter out, Task t) throws IOException {
+        out.write(t.date().toString());
+        out.write(',');
+        out.write(Task.formatMinute(t.startMinute));
+        out.write(',');
+        out.write(Task.formatMinute(t.endMinute));
+        out.write(',');
+        out.write(csvField(t.title));
+        out.write(',');
+        out.write(csvField(t.description));
+        out.write(',');
+        out.write(String.valueOf(t.done));
+        out.newLine();
+    }
+
+    // yyyy-MM-dd without going through a DateTimeFormatter, which dominates large imports.
+    private static LocalDate parseIsoDate(String s) {
+        try {
+            if (s.length() == 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+                return LocalDate.of(Integer.parseInt(s, 0, 4, 10),
+                        Integer.parseInt(s, 5, 7, 10), Integer.parseInt(s, 8, 10, 10));
+            }
+            return LocalDate.parse(s);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1 && s.indexOf('\r') == -1) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    // ---- iCalendar ----
+
+    private static void readIcs(BufferedReader in, Importer importer) throws IOException {
+        String title = null;
+        String description = "";
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        boolean allDay = false;
+        boolean done = false;
+        boolean inEvent = false;
+
+        String pending = in.readLine();
+        while (pending != null) {
+            // unfold continuation lines, which start with a space or tab
+            StringBuilder line = new StringBuilder(pending);
+            while ((pending = in.readLine()) != null && !pending.isEmpty()
+                    && (pending.charAt(0) == ' ' || pending.charAt(0) == '\t')) {
+                line.append(pending, 1, pending.length());
+            }
+            String content = line.toString();
+            int colon = content.indexOf(':');
+            if (colon == -1) continue;
+            String name = content.substring(0, colon);
+            String value = content.substring(colon + 1);
+            int semi = name.indexOf(';');
+            if (semi != -1) name = name.substring(0, semi);
+
+            switch (name.toUpperCase(Locale.ROOT)) {
+                case "BEGIN":
+                    if (value.equalsIgnoreCase("VEVENT")) {
+                        inEvent = true;
+                        title = null;
+                        description = "";
+                        start = null;
+                        end = null;
+                        allDay = false;
+                        done = false;
+                    }
+                    break;
+                case "END":
+                    if (inEvent && value.equalsIgnoreCase("VEVENT")) {
+                        inEvent = false;
+                        boolean timed = start != null && !allDay;
+                        importer.accept(title == null ? "" : title, description,
+                                start == null ? null : start.toLocalDate(),
+                                timed ? minuteOf(start) : Task.NO_TIME,
+                                timed && end != null && end.toLocalDate().equals(start.toLocalDate())
+                                        ? minuteOf(end) : Task.NO_TIME,
+                                done);
+                    }
+                    break;
+                case "SUMMARY":
+                    if (inEvent) title = unescapeIcs(value);
+                    break;
+                case "DESCRIPTION":
+                    if (inEvent) description = unescapeIcs(value);
+                    break;
+                case "DTSTART":
+                    if (inEvent) {
+                        start = parseIcsTime(value);
+                        allDay = value.trim().length() == 8;
+                    }
+                    break;
+                case "DTEND":
+                    if (inEvent) end = parseIcsTime(value);
+                    break;
+                case "STATUS":
+                    if (inEvent) done = value.equalsIgnoreCase("COMPLETED");
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static int minuteOf(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // Accepts DATE (yyyyMMdd) and DATE-TIME (yyyyMMddTHHmmss, optionally UTC with a trailing Z).
+    private static LocalDateTime parseIcsTime(String value) {
+        try {
+            String v = value.trim();
+            LocalDate date = LocalDate.of(Integer.parseInt(v.substring(0, 4)),
+                    Integer.parseInt(v.substring(4, 6)), Integer.parseInt(v.substring(6, 8)));
+            if (v.length() < 13 || v.charAt(8) != 'T') return date.atStartOfDay();
+            LocalDateTime time = date.atTime(Integer.parseInt(v.substring(9, 11)), Integer.parseInt(v.substring(11, 13)));
+            if (v.endsWith("Z")) {
+                time = time.atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            return time;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String unescapeIcs(String s) {
+        if (s.indexOf('\\') == -1) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(n == 'n' || n == 'N' ? '\n' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String escapeIcs(String s) {
+        return s.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,")
+                .replace("\r\n", "\\n").replace("\n", "\\n");
+    }
+
+    private static void writeIcsEvent(BufferedWriter out, Task t) throws IOException {
+        LocalDate date = t.date();
+        out.write("BEGIN:VEVENT\r\n");
+        writeIcsLine(out, "UID:task-" + t.id + "@teamtasker");
+        if (t.startMinute == Task.NO_TIME) {
+            writeIcsLine(out, "DTSTART;VALUE=DATE:" + icsDate(date));
+        } else {
+            writeIcsLine(out, "DTSTART:" + icsDateTime(date, t.startMinute));
+            if (t.endMinute != Task.NO_TIME) writeIcsLine(out, "DTEND:" + icsDateTime(date, t.endMinute));
+        }
+        writeIcsLine(out, "SUMMARY:" + escapeIcs(t.title));
+        if (!t.description.isEmpty()) writeIcsLine(out, "DESCRIPTION:" + escapeIcs(t.description));
+        if (t.done) writeIcsLine(out, "STATUS:COMPLETED");
+        out.write("END:VEVENT\r\n");
+    }
+
+    private static String icsDate(LocalDate date) {
+        return String.format("%04d%02d%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    private static String icsDateTime(LocalDate date, int minute) {
+        return icsDate(date) + String.format("T%02d%02d00", minute / 60, minute % 60);
+    }
+
+    // Folds content lines at 75 characters as RFC 5545 asks.
+    private static void writeIcsLine(BufferedWriter out, String line) throws IOException {
+        int pos = 0;
+        while (line.length() - pos > 75) {
+            int len = Character.isHighSurrogate(line.charAt(pos + 74)) ? 74 : 75;
+            out.write(line, pos, len);
+            out.write("\r\n ");
+            pos += len;
+        }
+        out.write(line, pos, line.length() - pos);
+        out.write("\r\n");
+    }
+}
@@ -0,0 +1,551 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+// Durable task storage: every store change is appended to tasks.journal as a small binary
+// record, and a background writer commits whatever has queued up with a single fsync. Every
+// SNAPSHOT_EVERY records the writer dumps the whole store to tasks.snapshot and starts a fresh
+// journal, so startup maps the snapshot and only replays the short journal tail.
+//
+// Records are state-setting (upsert, set-done, remove), so replaying one that the snapshot
+// already reflects is harmless. A recurrence rule is written whole whenever it or one of its
+// occurrences changes; rules are small, and this keeps their records state-setting too.
+//
+// With a MonthPager the tasks live in its month files instead: the snapshot keeps only the
+// rules and the id high-water mark, a checkpoint writes the dirty months, and at startup the
+// journal tail is folded into the month files it touches before anything is loaded.
+class TaskJournal implements TaskStore.Listener, Closeable {
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DONE = 2;
+    private static final byte OP_REMOVE = 3;
+    private static final byte OP_RULE_PUT = 4;
+    private static final byte OP_RULE_REMOVE = 5;
+
+    private static final int SNAPSHOT_MAGIC = 0x5454534E; // "TTSN"
+    // Format 2 appends the recurrence rules; format 1 files are still read.
+    private static final int SNAPSHOT_FORMAT = 2;
+    private static final int SNAPSHOT_EVERY = 50_000;
+    private static final Record STOP = new Record((byte) 0, 0, null, null);
+    // A failed commit is retried with exponential backoff; after MAX_RETRIES failures in a row
+    // (about four minutes) the journal gives up rather than queue changes without bound.
+    private static final long RETRY_MIN_MILLIS = 100;
+    private static final long RETRY_MAX_MILLIS = 30_000;
+    private static final int MAX_RETRIES = 16;
+    private static final int CLOSE_RETRIES = 3;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final TaskStore store;
+    private final MonthPager pager;
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final FileChannel journal;
+    private final BlockingQueue<Record> pending = new LinkedBlockingQueue<>();
+    private final AtomicLong seq;
+    private final Thread writer = new Thread(this::writeLoop, "task-journal");
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Consumer<String> failureListener = message -> { };
+    private volatile Runnable checkpointListener = () -> { };
+    private volatile LongConsumer commitListener = committed -> { };
+    private volatile long committedSeq;
+    private volatile boolean failed;
+    private long writtenSeq;
+    private int recordsSinceSnapshot;
+
+    private TaskJournal(TaskStore store, MonthPager pager, Path dir, long lastSeq, int journalRecords)
+            throws IOException {
+        this.store = store;
+        this.pager = pager;
+        this.journalPath = dir.resolve("tasks.journal");
+        this.snapshotPath = dir.resolve("tasks.snapshot");
+        this.journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.journal.position(journal.size());
+        this.seq = new AtomicLong(lastSeq);
+        this.writtenSeq = lastSeq;
+        this.committedSeq = lastSeq;
+        this.recordsSinceSnapshot = journalRecords;
+        writer.setDaemon(true);
+    }
+
+    static Path defaultDirectory() {
+        String dir = System.getProperty("teamtasker.data.dir");
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".teamtasker");
+    }
+
+    // Loads the snapshot and journal tail from dir into store, then starts journaling its changes.
+    static TaskJournal open(Path dir, TaskStore store) throws IOException {
+        return open(dir, store, null);
+    }
+
+    // With a pager only the rules are loaded here; tasks are paged in month by month.
+    static TaskJournal open(Path dir, TaskStore store, MonthPager pager) throws IOException {
+        Files.createDirectories(dir);
+        Path monthsDir = dir.resolve(MonthPager.DIRECTORY);
+        Map<Long, Task> tasks = new LinkedHashMap<>();
+        Map<Long, RecurrenceRule> rules = new LinkedHashMap<>();
+        // paging was switched off: the month files go back into a full snapshot
+        boolean unpage = pager == null && MonthPager.readAll(monthsDir, tasks);
+        Map<Long, Task> snapshotTasks = new LinkedHashMap<>();
+        long[] header = readSnapshot(dir.resolve("tasks.snapshot"), snapshotTasks, rules);
+        Set<YearMonth> touched = new HashSet<>();
+        LongConsumer touch = null;
+        if (pager != null) {
+            // only the months the snapshot and journal mention are read
+            touch = day -> {
+                YearMonth month = MonthPager.monthOf(day);
+                if (!touched.add(month)) return;
+                try {
+                    pager.readMonth(month, tasks);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            for (Task t : snapshotTasks.values()) touch.accept(t.epochDay);
+        }
+        tasks.putAll(snapshotTasks);
+        long[] tail;
+        try {
+            tail = replayJournal(dir.resolve("tasks.journal"), header[0], tasks, rules, touch);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        store.reserveIds(header[1]);
+        for (long id : tasks.keySet()) store.reserveIds(id);
+        for (long id : rules.keySet()) store.reserveIds(id);
+        if (pager != null) {
+            Map<YearMonth, List<Task>> byMonth = new HashMap<>();
+            for (YearMonth m : touched) byMonth.put(m, new ArrayList<>());
+            for (Task t : tasks.values()) byMonth.get(MonthPager.monthOf(t.epochDay)).add(t);
+            for (Map.Entry<YearMonth, List<Task>> e : byMonth.entrySet()) pager.writeMonth(e.getKey(), e.getValue());
+        } else {
+            store.addAll(tasks.values());
+        }
+        for (RecurrenceRule rule : rules.values()) store.putRule(rule);
+
+        TaskJournal j = new TaskJournal(store, pager, dir, Math.max(header[0], tail[0]), (int) tail[1]);
+        if (pager != null) {
+            // the months now hold everything the snapshot and journal did
+            if (!touched.isEmpty()) j.writeSnapshot();
+            pager.attach();
+        } else if (unpage) {
+            j.writeSnapshot();
+            MonthPager.deleteAll(monthsDir);
+        }
+        store.addListener(j);
+        j.writer.start();
+        CalendarMetrics.INSTANCE.watchJournal(j);
+        Runtime.getRuntime().addShutdownHook(new Thread(j::close, "task-journal-shutdown"));
+        return j;
+    }
+
+    // Told on the writer thread when saving starts failing and when the journal gives up.
+    void onFailure(Consumer<String> listener) {
+        failureListener = listener;
+    }
+
+    // Run on the writer thread after each checkpoint, for state that is saved alongside the
+    // snapshot (the sync client's version map).
+    void onCheckpoint(Runnable listener) {
+        checkpointListener = listener;
+    }
+
+    // Run on the writer thread after each commit, with the sequence everything up to which is
+    // now on disk.
+    void onCommit(LongConsumer listener) {
+        commitListener = listener;
+    }
+
+    // The sequence of the last change queued. A change made before this call returns has a
+    // sequence no higher, since the journal hears of it before the store call returns.
+    long queuedSeq() {
+        return seq.get();
+    }
+
+    long committedSeq() {
+        return committedSeq;
+    }
+
+    // Records queued but not yet committed.
+    int backlog() {
+        return pending.size();
+    }
+
+    @Override
+    public void tasksChanged(List<TaskChange> changes) {
+        if (failed) return;
+        // listeners run on several threads at once; numbering and queuing together keeps the
+        // queue in sequence order, so a committed sequence covers every record below it
+        synchronized (seq) {
+            for (TaskChange change : changes) {
+                if (change.rule != null) {
+                    byte op = change.kind == TaskChange.Kind.RULE_REMOVED ? OP_RULE_REMOVE : OP_RULE_PUT;
+                    pending.add(new Record(op, seq.incrementAndGet(), null, change.rule));
+                    continue;
+                }
+                byte op;
+                if (change.kind == TaskChange.Kind.REMOVED) {
+                    op = OP_REMOVE;
+                } else if (change.onlyDoneChanged()) {
+                    op = OP_DONE;
+                } else {
+                    op = OP_PUT;
+                }
+                pending.add(new Record(op, seq.incrementAndGet(), change.task(), null));
+            }
+        }
+    }
+    // Lets the writer commit everything still queued; the writer closes the journal file when it
+    // exits. It is stopped with a marker rather than an interrupt, which would close the channel
+    // under it, and if it is still busy (retrying a failed write) after the timeout the file is
+    // left to it.
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        pending.add(STOP);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            System.err.println("task-journal: still writing after " + CLOSE_TIMEOUT_MILLIS + " ms; "
+                    + pending.size() + " changes queued");
+        }
+    }
+
+    private void writeLoop() {
+        List<Record> batch = new ArrayList<>();
+        boolean stopping = false;
+        int failures = 0;
+        try {
+            while (true) {
+                try {
+                    if (batch.isEmpty() && !stopping) batch.add(pending.take());
+                    pending.drainTo(batch);
+                    if (batch.removeIf(r -> r == STOP)) stopping = true;
+                    if (!batch.isEmpty()) {
+                        commit(batch);
+                        committedSeq = writtenSeq;
+                        commitListener.accept(writtenSeq);
+                    }
+                    batch.clear();
+                    failures = 0;
+                    // only stop once the last batch is on disk
+                    if (stopping) return;
+                    if (recordsSinceSnapshot >= SNAPSHOT_EVERY) {
+                        writeSnapshot();
+                        checkpointListener.run();
+                    }
+                } catch (IOException e) {
+                    // keep the batch and retry it with whatever queues up meanwhile
+                    failures++;
+                    CalendarMetrics.INSTANCE.journalWriteFailed();
+                    if (failures == 1) {
+                        e.printStackTrace();
+                        failureListener.accept("Tasks could not be saved (" + e.getMessage() + "); retrying.");
+                    }
+                    if (failures >= (stopping ? CLOSE_RETRIES : MAX_RETRIES)) {
+                        giveUp(batch.size() + pending.size(), e);
+                        return;
+                    }
+                    Thread.sleep(stopping ? RETRY_MIN_MILLIS
+                            : Math.min(RETRY_MAX_MILLIS, RETRY_MIN_MILLIS << Math.min(failures - 1, 20)));
+                }
+            }
+        } catch (InterruptedException e) {
+            // not used to stop the writer; leave the queue as it is
+        } finally {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Stops journaling: the queued changes are dropped and later ones are not recorded.
+    private void giveUp(int lost, IOException cause) {
+        failed = true;
+        store.removeListener(this);
+        pending.clear();
+        System.err.println("task-journal: giving up after repeated write failures; " + lost + " changes lost");
+        failureListener.accept("Tasks could not be saved (" + cause.getMessage() + "). " + lost
+                + " recent changes were lost, and changes from now on will not be kept.");
+    }
+
+    // Group commit: one write and one fsync for the whole batch.
+    private void commit(List<Record> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        DataOutputStream p = new DataOutputStream(payload);
+        CRC32 crc = new CRC32();
+        for (Record r : batch) {
+            payload.reset();
+            p.writeByte(r.op);
+            p.writeLong(r.seq);
+            p.writeLong(r.task != null ? r.task.id : r.rule.id);
+            p.writeLong(r.task != null ? r.task.epochDay : r.rule.startDay);
+            if (r.op == OP_RULE_PUT) {
+                writeRuleBody(p, r.rule);
+            } else if (r.op == OP_PUT) {
+                writeTaskBody(p, r.task);
+            } else if (r.op == OP_DONE) {
+                p.writeBoolean(r.task.done);
+            }
+            crc.reset();
+            crc.update(payload.toByteArray());
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+            writtenSeq = Math.max(writtenSeq, r.seq);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        long start = journal.position();
+        try {
+            while (buf.hasRemaining()) journal.write(buf);
+            journal.force(false);
+        } catch (IOException e) {
+            // drop a partial write, or the retried batch would land behind a torn record that
+            // replay stops at
+            try {
+                journal.truncate(start);
+                journal.position(start);
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+        recordsSinceSnapshot += batch.size();
+    }
+
+    // Every record up to writtenSeq was queued after its change reached the store, so the
+    // store snapshot taken now contains all of them and the journal can start over. Paged, the
+    // same holds for the months flushed now, and the snapshot has no tasks.
+    private void writeSnapshot() throws IOException {
+        long cutSeq = writtenSeq;
+        Path tmp = snapshotPath.resolveSibling("tasks.snapshot.tmp");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        int count = 0;
+        long maxId = 0;
+        if (pager != null) {
+            pager.flush();
+            maxId = store.lastId();
+        } else {
+            for (DayBucket bucket : store.snapshot().days().values()) {
+                for (Task t : bucket.tasks) {
+                    out.writeLong(t.id);
+                    out.writeLong(t.epochDay);
+                    writeTaskBody(out, t);
+                    count++;
+                    maxId = Math.max(maxId, t.id);
+                }
+            }
+        }
+        // rules changed since the cut are replayed from the journal like tasks
+        List<RecurrenceRule> rules = new ArrayList<>(store.rules());
+        out.writeInt(rules.size());
+        for (RecurrenceRule rule : rules) {
+            out.writeLong(rule.id);
+            out.writeLong(rule.startDay);
+            writeRuleBody(out, rule);
+            maxId = Math.max(maxId, rule.id);
+        }
+        ByteBuffer header = ByteBuffer.allocate(32);
+        header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_FORMAT).putLong(cutSeq).putLong(maxId).putInt(count).flip();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(header);
+            ByteBuffer body = ByteBuffer.wrap(bytes.toByteArray());
+            while (body.hasRemaining()) ch.write(body);
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal.truncate(0);
+        journal.position(0);
+        journal.force(true);
+        recordsSinceSnapshot = 0;
+    }
+
+    static void writeTaskBody(DataOutputStream out, Task t) throws IOException {
+        out.writeShort(t.startMinute);
+        out.writeShort(t.endMinute);
+        out.writeBoolean(t.done);
+        writeString(out, t.title);
+        writeString(out, t.description);
+    }
+
+    static Task readTask(ByteBuffer in, long id, long epochDay) {
+        int start = in.getShort();
+        int end = in.getShort();
+        boolean done = in.get() != 0;
+        String title = readString(in);
+        String description = readString(in);
+        return new Task(id, title, description, epochDay, start, end, done);
+    }
+
+    static void writeRuleBody(DataOutputStream out, RecurrenceRule rule) throws IOException {
+        out.writeShort(rule.startMinute);
+        out.writeShort(rule.endMinute);
+        out.writeByte(rule.frequency.ordinal());
+        out.writeInt(rule.interval);
+        out.writeByte(rule.weekdays);
+        out.writeLong(rule.untilDay);
+        out.writeInt(rule.count);
+        writeDays(out, rule.exceptions());
+        writeDays(out, rule.doneDays());
+        writeString(out, rule.title);
+        writeString(out, rule.description);
+    }
+
+    static RecurrenceRule readRule(ByteBuffer in, long id, long startDay) {
+        int start = in.getShort();
+        int end = in.getShort();
+        RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.values()[in.get()];
+        int interval = in.getInt();
+        int weekdays = in.get();
+        long untilDay = in.getLong();
+        int count = in.getInt();
+        long[] exceptions = readDays(in);
+        long[] doneDays = readDays(in);
+        String title = readString(in);
+        String description = readString(in);
+        return new RecurrenceRule(id, title, description, start, end, startDay, frequency, interval,
+                weekdays, untilDay, count, exceptions, doneDays);
+    }
+
+    private static void writeDays(DataOutputStream out, long[] days) throws IOException {
+        out.writeInt(days.length);
+        for (long d : days) out.writeLong(d);
+    }
+
+    private static long[] readDays(ByteBuffer in) {
+        long[] days = new long[in.getInt()];
+        for (int i = 0; i < days.length; i++) days[i] = in.getLong();
+        return days;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] b = new byte[in.getInt()];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // Returns {the sequence number the snapshot is complete up to, max id}, or zeros if there is none.
+    private static long[] readSnapshot(Path path, Map<Long, Task> into, Map<Long, RecurrenceRule> rules)
+            throws IOException {
+        if (!Files.exists(path)) return new long[] {0, 0};
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            int format = in.remaining() < 28 || in.getInt() != SNAPSHOT_MAGIC ? -1 : in.getInt();
+            if (format != 1 && format != SNAPSHOT_FORMAT) {
+                throw new IOException("Unrecognized snapshot file " + path);
+            }
+            long cutSeq = in.getLong();
+            long maxId = in.getLong(); // what a paged snapshot has instead of its tasks
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.getLong();
+                long day = in.getLong();
+                into.put(id, readTask(in, id, day));
+            }
+            int ruleCount = format == 1 ? 0 : in.getInt();
+            for (int i = 0; i < ruleCount; i++) {
+                long id = in.getLong();
+                long startDay = in.getLong();
+                rules.put(id, readRule(in, id, startDay));
+            }
+            return new long[] {cutSeq, maxId};
+        }
+    }
+
+    // Applies the records after afterSeq and cuts off a torn tail left by a crash mid-write;
+    // touch, if given, sees the day of each task record before it is applied.
+    // Returns {last sequence number, record count}.
+    private static long[] replayJournal(Path path, long afterSeq, Map<Long, Task> tasks,
+                                        Map<Long, RecurrenceRule> rules, LongConsumer touch) throws IOException {
+        if (!Files.exists(path)) return new long[] {0, 0};
+        long lastSeq = 0;
+        int records = 0;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the tail is short by construction, so a heap read avoids mapping a file we may truncate
+            ByteBuffer in = ByteBuffer.allocate((int) ch.size());
+            while (in.hasRemaining() && ch.read(in) != -1) { }
+            in.flip();
+            CRC32 crc = new CRC32();
+            long valid = 0;
+            while (in.remaining() >= 8) {
+                int len = in.getInt();
+                int sum = in.getInt();
+                if (len <= 0 || len > in.remaining()) break;
+                ByteBuffer payload = in.slice();
+                payload.limit(len);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != sum) break;
+                in.position(in.position() + len);
+                valid = in.position();
+                records++;
+
+                byte op = payload.get();
+                long seq = payload.getLong();
+                long id = payload.getLong();
+                long day = payload.getLong();
+                lastSeq = Math.max(lastSeq, seq);
+                if (seq <= afterSeq) continue;
+                if (touch != null && op <= OP_REMOVE) touch.accept(day);
+                if (op == OP_PUT) {
+                    tasks.put(id, readTask(payload, id, day));
+                } else if (op == OP_DONE) {
+                    boolean done = payload.get() != 0;
+                    tasks.computeIfPresent(id, (k, t) -> t.withDone(done));
+                } else if (op == OP_REMOVE) {
+                    tasks.remove(id);
+                } else if (op == OP_RULE_PUT) {
+                    rules.put(id, readRule(payload, id, day));
+                } else if (op == OP_RULE_REMOVE) {
+                    rules.remove(id);
+                }
+            }
+            if (valid < ch.size()) ch.truncate(valid);
+        }
+        return new long[] {lastSeq, records};
+    }
+
+    private static final class Record {
+        final byte op;
+        final long seq;
+        final Task task;
+        final RecurrenceRule rule;
+
+        Record(byte op, long seq, Task task, RecurrenceRule rule) {
+            this.op = op;
+            this.seq = seq;
+            this.task = task;
+            this.rule = rule;
+        }
+    }
+}
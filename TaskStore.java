@@ -0,0 +1,732 @@
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Tasks indexed by epoch-day in a navigable map, so month and range queries touch only the
+// days in range. Every day is an immutable DayBucket (tasks plus precomputed counts) that
+// writers replace under one of a fixed set of striped locks, so readers never lock and never
+// see a half-applied edit of a single day. Readers that need several days at once take a snapshot, which is
+// validated against the store version and retried (seqlock style) instead of blocking edits.
+//
+// Recurring tasks are kept as RecurrenceRules beside the days and expanded only when a day is
+// read: bucket(), tasksOn() and find() include the occurrences falling on that day, while
+// range() and snapshot() return stored tasks only. Updating an occurrence records its done
+// flag on the rule; removing one records an exception.
+//
+// With a Pager installed only some months are in memory. load() and unload() move days in and
+// out without notifying listeners, since nothing changed; readers that must see a day whatever
+// is resident call ensureResident() first, off the EDT, and whole-calendar jobs (export,
+// clean up) go through forEachPage().
+class TaskStore {
+    interface Listener {
+        // Called on the mutating thread while the day's stripe is held, so per-day changes
+        // arrive in order; implementations must only record or hand off the change.
+        void tasksChanged(List<TaskChange> changes);
+    }
+
+    // Keeps the days that are not resident; see MonthPager. All calls block while loading.
+    interface Pager {
+        void ensureResident(long fromDay, long toDay);
+
+        // Keeps [fromDay, toDay] resident until the next pin call replaces it.
+        void pin(long fromDay, long toDay);
+
+        // Calls action with the first and last day of every month that has tasks and overlaps
+        // [fromDay, toDay], oldest first, keeping the month resident until action returns.
+        void forEachMonth(long fromDay, long toDay, BiConsumer<Long, Long> action);
+    }
+
+    // Ids are (node << NODE_SHIFT) | counter, so clients that sync never hand out the same id.
+    static final int NODE_SHIFT = 40;
+    static final int MAX_NODE = (1 << 20) - 1;
+
+    private static final int STRIPES = 32;
+    private static final int OPTIMISTIC_RETRIES = 8;
+
+    private final ConcurrentSkipListMap<Long, DayBucket> days = new ConcurrentSkipListMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger activeWriters = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong ids = new AtomicLong();
+    private volatile int node;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, RecurrenceRule> rules = new ConcurrentHashMap<>();
+    // Serializes rule edits; taken after a stripe when an occurrence is edited, never before.
+    private final Object ruleLock = new Object();
+    private volatile Pager pager;
+    private TaskChangeFeed feed;
+
+    TaskStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Changes as a Flow.Publisher for outside consumers; created and attached on first use.
+    synchronized TaskChangeFeed changes() {
+        if (feed == null) {
+            feed = new TaskChangeFeed();
+            addListener(feed);
+        }
+        return feed;
+    }
+
+    // Must be called before any id is handed out; node 0 is the unsynced default.
+    void setNode(int node) {
+        if (node < 0 || node > MAX_NODE) throw new IllegalArgumentException("Node out of range: " + node);
+        this.node = node;
+    }
+
+    int node() {
+        return node;
+    }
+
+    static int nodeOf(long id) {
+        return (int) (id >>> NODE_SHIFT);
+    }
+
+    // The last id this node handed out.
+    long lastId() {
+        return ((long) node << NODE_SHIFT) | ids.get();
+    }
+
+    long newId() {
+        return ((long) node << NODE_SHIFT) | ids.incrementAndGet();
+    }
+
+    // Makes sure newId() never hands out an id that is already stored (e.g. after a reload).
+    // Ids minted by other nodes cannot collide with ours and are ignored.
+    void reserveIds(long maxId) {
+        if (nodeOf(maxId) == node) ids.accumulateAndGet(maxId & ((1L << NODE_SHIFT) - 1), Math::max);
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    List<Task> tasksOn(long epochDay) {
+        return bucket(epochDay).tasks;
+    }
+
+    // Stored tasks of the day plus the occurrences of any rule on it.
+    DayBucket bucket(long epochDay) {
+        DayBucket stored = days.getOrDefault(epochDay, DayBucket.EMPTY);
+        if (rules.isEmpty()) return stored;
+        List<Task> merged = null;
+        for (RecurrenceRule rule : rules.values()) {
+            if (!rule.occursOn(epochDay)) continue;
+            if (merged == null) merged = new ArrayList<>(stored.tasks);
+            merged.add(rule.occurrence(epochDay));
+        }
+        return merged == null ? stored : DayBucket.view(merged);
+    }
+
+    RecurrenceRule rule(long id) {
+        return rules.get(id);
+    }
+
+    Collection<RecurrenceRule> rules() {
+        return Collections.unmodifiableCollection(rules.values());
+    }
+
+    int ruleCount() {
+        return rules.size();
+    }
+
+    // Adds the rule, or replaces the one with the same id.
+    void putRule(RecurrenceRule rule) {
+        synchronized (ruleLock) {
+            beginWrite();
+            rules.put(rule.id, rule);
+            endWrite();
+            fire(Collections.singletonList(TaskChange.rulePut(rule)));
+        }
+    }
+
+    // Removes the rule and with it every occurrence; returns false if it was already gone.
+    boolean removeRule(long id) {
+        synchronized (ruleLock) {
+            beginWrite();
+            RecurrenceRule rule = rules.remove(id);
+            if (rule == null) {
+                activeWriters.decrementAndGet();
+                return false;
+            }
+            endWrite();
+            fire(Collections.singletonList(TaskChange.ruleRemoved(rule)));
+            return true;
+        }
+    }
+
+    // Non-empty days in [fromDay, toDay], ascending. Each bucket is consistent on its own;
+    // use snapshot() when the days must also agree with each other.
+    NavigableMap<Long, DayBucket> range(long fromDay, long toDay) {
+        return days.subMap(fromDay, true, toDay, true);
+    }
+
+    int dayCount() {
+        return days.size();
+    }
+
+    Task find(long epochDay, long id) {
+        for (Task t : tasksOn(epochDay)) {
+            if (t.id == id) return t;
+        }
+        return null;
+    }
+
+    void add(Task task) {
+        ReentrantLock lock = lockFor(task.epochDay);
+        lock.lock();
+        beginWrite();
+        try {
+            List<Task> current = stored(task.epochDay);
+            List<Task> next = new ArrayList<>(current.size() + 1);
+            next.addAll(current);
+            next.add(task);
+            days.put(task.epochDay, DayBucket.of(next));
+            size.incrementAndGet();
+            endWrite();
+            fire(Collections.singletonList(TaskChange.added(task)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Adds many tasks with one list copy per day and a single listener notification. All
+    // affected stripes are held for the duration, so the batch is applied atomically.
+    void addAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) return;
+        Map<Long, List<Task>> byDay = new HashMap<>();
+        for (Task task : tasks) {
+            byDay.computeIfAbsent(task.epochDay, d -> new ArrayList<>()).add(task);
+        }
+        List<ReentrantLock> locks = lockAll(byDay.keySet());
+        beginWrite();
+        try {
+            List<TaskChange> changes = new ArrayList<>(tasks.size());
+            for (Map.Entry<Long, List<Task>> e : byDay.entrySet()) {
+                List<Task> current = stored(e.getKey());
+                List<Task> next = new ArrayList<>(current.size() + e.getValue().size());
+                next.addAll(current);
+                next.addAll(e.getValue());
+                days.put(e.getKey(), DayBucket.of(next));
+                for (Task task : e.getValue()) {
+                    changes.add(TaskChange.added(task));
+                }
+            }
+            size.addAndGet(tasks.size());
+            endWrite();
+            fire(changes);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    // Replaces the stored task with the same id and day; returns false if it no longer exists.
+    // For an occurrence only the done flag is kept; the rest comes from its rule.
+    boolean update(Task task) {
+        ReentrantLock lock = lockFor(task.epochDay);
+        lock.lock();
+        beginWrite();
+        try {
+            List<Task> current = stored(task.epochDay);
+            int idx = indexOf(current, task.id);
+            if (idx == -1) {
+                activeWriters.decrementAndGet();
+                return updateOccurrence(task);
+            }
+            Task before = current.get(idx);
+            List<Task> next = new ArrayList<>(current);
+            next.set(idx, task);
+            days.put(task.epochDay, DayBucket.of(next));
+            endWrite();
+            fire(Collections.singletonList(TaskChange.updated(before, task)));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean remove(Task task) {
+        ReentrantLock lock = lockFor(task.epochDay);
+        lock.lock();
+        beginWrite();
+        try {
+            List<Task> current = stored(task.epochDay);
+            int idx = indexOf(current, task.id);
+            if (idx == -1) {
+                activeWriters.decrementAndGet();
+                return removeOccurrences(Collections.singletonMap(task.epochDay, Collections.singleton(task.id))) > 0;
+            }
+            Task before = current.get(idx);
+            if (current.size() == 1) {
+                days.remove(task.epochDay);
+            } else {
+                List<Task> next = new ArrayList<>(current);
+                next.remove(idx);
+                days.put(task.epochDay, DayBucket.of(next));
+            }
+            size.decrementAndGet();
+            endWrite();
+            fire(Collections.singletonList(TaskChange.removed(before)));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Removes many tasks with one list copy per day and a single listener notification.
+    // Occurrences among them are cancelled on their rules. Returns how many were still present.
+    int removeAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) return 0;
+        Map<Long, Set<Long>> byDay = new HashMap<>();
+        for (Task task : tasks) {
+            byDay.computeIfAbsent(task.epochDay, d -> new HashSet<>()).add(task.id);
+        }
+        List<ReentrantLock> locks = lockAll(byDay.keySet());
+        beginWrite();
+        try {
+            List<TaskChange> changes = new ArrayList<>(tasks.size());
+            Map<Long, Set<Long>> missing = new HashMap<>();
+            for (Map.Entry<Long, Set<Long>> e : byDay.entrySet()) {
+                List<Task> current = stored(e.getKey());
+                List<Task> next = new ArrayList<>(current.size());
+                Set<Long> left = new HashSet<>(e.getValue());
+                for (Task t : current) {
+                    if (left.remove(t.id)) changes.add(TaskChange.removed(t));
+                    else next.add(t);
+                }
+                if (next.isEmpty()) days.remove(e.getKey());
+                else if (next.size() != current.size()) days.put(e.getKey(), DayBucket.of(next));
+                if (!left.isEmpty()) missing.put(e.getKey(), left);
+            }
+            if (changes.isEmpty()) {
+                activeWriters.decrementAndGet();
+            } else {
+                size.addAndGet(-changes.size());
+                endWrite();
+                fire(changes);
+            }
+            return changes.size() + (missing.isEmpty() ? 0 : removeOccurrences(missing));
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    // Applies every edit of the batch atomically: the stripes of all days it touches (and the
+    // rule lock, for occurrences) are held throughout, and listeners get a single change list.
+    // Changes are coalesced per task and day, so a task edited twice is one UPDATED and one added
+    // and removed again is nothing; a move is REMOVED on the old day and ADDED on the new one.
+    // Updates and removals of tasks that are gone are skipped, and so are conditional removals
+    // of tasks that changed since they were read. Returns the number of changes.
+    int apply(Batch batch) {
+        if (batch.ops.isEmpty()) return 0;
+        Set<Long> touched = new HashSet<>();
+        for (Batch.Op op : batch.ops) touched.add(op.task.epochDay);
+        List<ReentrantLock> locks = lockAll(touched);
+        try {
+            synchronized (ruleLock) {
+                beginWrite();
+                Map<Long, List<Task>> working = new HashMap<>();
+                Set<Long> changedDays = new HashSet<>();
+                Map<Long, RecurrenceRule> ruleEdits = new HashMap<>();
+                // day -> id -> net edit
+                Map<Long, Map<Long, Batch.Edit>> edits = new LinkedHashMap<>();
+                for (Batch.Op op : batch.ops) {
+                    Task t = op.task;
+                    List<Task> list = working.computeIfAbsent(t.epochDay, d -> new ArrayList<>(stored(d)));
+                    int idx = indexOf(list, t.id);
+                    Task before;
+                    Task after;
+                    RecurrenceRule rule = null;
+                    if (idx == -1 && op.kind != TaskChange.Kind.ADDED) {
+                        RecurrenceRule current = ruleEdits.getOrDefault(t.id, rules.get(t.id));
+                        if (current == null || !current.occursOn(t.epochDay)) continue;
+                        before = current.occurrence(t.epochDay);
+                        // an occurrence is made afresh on every read; its done flag is all it has of its own
+                        if (op.ifUnchanged && before.done != t.done) continue;
+                        rule = op.kind == TaskChange.Kind.REMOVED
+                                ? current.withException(t.epochDay) : current.withDone(t.epochDay, t.done);
+                        if (rule == current) continue;
+                        ruleEdits.put(t.id, rule);
+                        after = op.kind == TaskChange.Kind.REMOVED ? null : rule.occurrence(t.epochDay);
+                    } else {
+                        before = idx == -1 ? null : list.get(idx);
+                        if (op.ifUnchanged && !before.sameAs(t)) continue;
+                        if (op.kind == TaskChange.Kind.REMOVED) {
+                            list.remove(idx);
+                            after = null;
+                        } else {
+                            if (idx == -1) list.add(t);
+                            else list.set(idx, t);
+                            after = t;
+                        }
+                        changedDays.add(t.epochDay);
+                    }
+                    Batch.Edit edit = edits.computeIfAbsent(t.epochDay, d -> new LinkedHashMap<>()).get(t.id);
+                    if (edit == null) {
+                        edit = new Batch.Edit(before);
+                        edits.get(t.epochDay).put(t.id, edit);
+                    }
+                    edit.after = after;
+                    edit.rule = rule;
+                }
+
+                List<TaskChange> removed = new ArrayList<>();
+                List<TaskChange> updated = new ArrayList<>();
+                List<TaskChange> added = new ArrayList<>();
+                for (Map<Long, Batch.Edit> day : edits.values()) {
+                    for (Batch.Edit edit : day.values()) {
+                        if (edit.before == null && edit.after == null) continue;
+                        if (edit.rule != null) {
+                            // net change of an occurrence, reported with the rule as it ends up
+                            RecurrenceRule rule = ruleEdits.get(edit.rule.id);
+                            if (edit.after == null) removed.add(TaskChange.occurrenceRemoved(edit.before, rule));
+                            else if (edit.after.done != edit.before.done) {
+                                updated.add(TaskChange.occurrenceUpdated(edit.before, edit.after, rule));
+                            }
+                        } else if (edit.before == null) {
+                            added.add(TaskChange.added(edit.after));
+                        } else if (edit.after == null) {
+                            removed.add(TaskChange.removed(edit.before));
+                        } else if (edit.after != edit.before) {
+                            updated.add(TaskChange.updated(edit.before, edit.after));
+                        }
+                    }
+                }
+                if (removed.isEmpty() && updated.isEmpty() && added.isEmpty()) {
+                    activeWriters.decrementAndGet();
+                    return 0;
+                }
+                int delta = 0;
+                for (long day : changedDays) {
+                    List<Task> next = working.get(day);
+                    delta += next.size() - stored(day).size();
+                    if (next.isEmpty()) days.remove(day);
+                    else days.put(day, DayBucket.of(next));
+                }
+                size.addAndGet(delta);
+                rules.putAll(ruleEdits);
+                endWrite();
+                // removals first, so a listener keyed by id sees a moved task leave before it arrives
+                List<TaskChange> changes = new ArrayList<>(removed.size() + updated.size() + added.size());
+                changes.addAll(removed);
+                changes.addAll(updated);
+                changes.addAll(added);
+                fire(changes);
+                return changes.size();
+            }
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    void setPager(Pager pager) {
+        this.pager = pager;
+    }
+
+    boolean paged() {
+        return pager != null;
+    }
+
+    // No-op unless paged; never call on the EDT.
+    void ensureResident(long fromDay, long toDay) {
+        Pager p = pager;
+        if (p != null) p.ensureResident(fromDay, toDay);
+    }
+
+    void pinResident(long fromDay, long toDay) {
+        Pager p = pager;
+        if (p != null) p.pin(fromDay, toDay);
+    }
+
+    // Hands action the stored days in [fromDay, toDay], oldest first: everything in one snapshot,
+    // or when paged a month at a time, kept resident while action runs so it may edit them too.
+    // Paged, this reads every month in range from disk; never call it on the EDT.
+    void forEachPage(long fromDay, long toDay, Consumer<NavigableMap<Long, DayBucket>> action) {
+        Pager p = pager;
+        if (p == null) {
+            action.accept(snapshot(fromDay, toDay).days());
+            return;
+        }
+        p.forEachMonth(fromDay, toDay, (first, last) ->
+                action.accept(snapshot(Math.max(first, fromDay), Math.min(last, toDay)).days()));
+    }
+
+    // Brings paged-in days into memory without notifying listeners. A task that is already
+    // resident was edited since the page was written, so the resident copy wins.
+    void load(Map<Long, List<Task>> byDay) {
+        if (byDay.isEmpty()) return;
+        List<ReentrantLock> locks = lockAll(byDay.keySet());
+        beginWrite();
+        try {
+            int added = 0;
+            for (Map.Entry<Long, List<Task>> e : byDay.entrySet()) {
+                List<Task> current = stored(e.getKey());
+                List<Task> next = new ArrayList<>(current.size() + e.getValue().size());
+                Set<Long> resident = new HashSet<>();
+                for (Task t : current) resident.add(t.id);
+                for (Task t : e.getValue()) {
+                    if (!resident.contains(t.id)) next.add(t);
+                }
+                if (next.isEmpty()) continue;
+                added += next.size();
+                next.addAll(current);
+                days.put(e.getKey(), DayBucket.of(next));
+            }
+            size.addAndGet(added);
+        } finally {
+            endWrite();
+            unlockAll(locks);
+        }
+    }
+
+    // Drops the days in [fromDay, toDay] (a month, not an open range) from memory without
+    // notifying listeners and returns what was there, for the pager to write back.
+    NavigableMap<Long, DayBucket> unload(long fromDay, long toDay) {
+        List<Long> all = new ArrayList<>();
+        for (long d = fromDay; d <= toDay; d++) all.add(d);
+        List<ReentrantLock> locks = lockAll(all);
+        beginWrite();
+        try {
+            NavigableMap<Long, DayBucket> gone = new TreeMap<>(range(fromDay, toDay));
+            for (Map.Entry<Long, DayBucket> e : gone.entrySet()) {
+                days.remove(e.getKey());
+                size.addAndGet(-e.getValue().size());
+            }
+            return gone;
+        } finally {
+            endWrite();
+            unlockAll(locks);
+        }
+    }
+
+    // A consistent view of the days in [fromDay, toDay] as of a single store version.
+    Snapshot snapshot(long fromDay, long toDay) {
+        for (int attempt = 0; attempt < OPTIMISTIC_RETRIES; attempt++) {
+            long before = version.get();
+            if (activeWriters.get() != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            NavigableMap<Long, DayBucket> view = copyRange(fromDay, toDay);
+            if (activeWriters.get() == 0 && version.get() == before) {
+                return new Snapshot(before, view);
+            }
+        }
+        // Under sustained writes fall back to holding every stripe for the copy.
+        for (ReentrantLock lock : stripes) lock.lock();
+        try {
+            return new Snapshot(version.get(), copyRange(fromDay, toDay));
+        } finally {
+            for (ReentrantLock lock : stripes) lock.unlock();
+        }
+    }
+
+    Snapshot snapshot() {
+        return snapshot(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Caller holds the day's stripe.
+    private boolean updateOccurrence(Task task) {
+        synchronized (ruleLock) {
+            RecurrenceRule rule = rules.get(task.id);
+            if (rule == null || !rule.occursOn(task.epochDay)) return false;
+            Task before = rule.occurrence(task.epochDay);
+            RecurrenceRule next = rule.withDone(task.epochDay, task.done);
+            if (next == rule) return true;
+            beginWrite();
+            rules.put(next.id, next);
+            endWrite();
+            fire(Collections.singletonList(TaskChange.occurrenceUpdated(before, next.occurrence(task.epochDay), next)));
+            return true;
+        }
+    }
+
+    // Cancels the given occurrences (ids per day); ids that are not a rule on that day are
+    // skipped. Caller holds the days' stripes. Returns how many were cancelled.
+    private int removeOccurrences(Map<Long, ? extends Collection<Long>> byDay) {
+        synchronized (ruleLock) {
+            List<TaskChange> changes = new ArrayList<>();
+            for (Map.Entry<Long, ? extends Collection<Long>> e : byDay.entrySet()) {
+                long day = e.getKey();
+                for (long id : e.getValue()) {
+                    RecurrenceRule rule = rules.get(id);
+                    if (rule == null || !rule.occursOn(day)) continue;
+                    Task before = rule.occurrence(day);
+                    RecurrenceRule next = rule.withException(day);
+                    if (changes.isEmpty()) beginWrite();
+                    rules.put(id, next);
+                    changes.add(TaskChange.occurrenceRemoved(before, next));
+                }
+            }
+            if (changes.isEmpty()) return 0;
+            endWrite();
+            fire(changes);
+            return changes.size();
+        }
+    }
+
+    private List<Task> stored(long epochDay) {
+        return days.getOrDefault(epochDay, DayBucket.EMPTY).tasks;
+    }
+
+    private NavigableMap<Long, DayBucket> copyRange(long fromDay, long toDay) {
+        return new TreeMap<>(range(fromDay, toDay));
+    }
+
+    private ReentrantLock lockFor(long epochDay) {
+        return stripes[(int) Math.floorMod(epochDay, (long) STRIPES)];
+    }
+
+    // Locks the stripes of the given days in stripe order, so concurrent batches cannot deadlock.
+    private List<ReentrantLock> lockAll(Collection<Long> epochDays) {
+        boolean[] needed = new boolean[STRIPES];
+        for (long day : epochDays) {
+            needed[(int) Math.floorMod(day, (long) STRIPES)] = true;
+        }
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (int i = 0; i < STRIPES; i++) {
+            if (needed[i]) {
+                stripes[i].lock();
+                locks.add(stripes[i]);
+            }
+        }
+        return locks;
+    }
+
+    private static void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private void beginWrite() {
+        activeWriters.incrementAndGet();
+    }
+
+    private void endWrite() {
+        version.incrementAndGet();
+        activeWriters.decrementAndGet();
+    }
+
+    private void fire(List<TaskChange> changes) {
+        for (Listener listener : listeners) {
+            listener.tasksChanged(changes);
+        }
+    }
+
+    private static int indexOf(List<Task> tasks, long id) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).id == id) return i;
+        }
+        return -1;
+    }
+
+    // Edits collected for apply(); nothing happens until then. Not thread-safe.
+    static final class Batch {
+        private final List<Op> ops = new ArrayList<>();
+
+        Batch add(Task task) {
+            ops.add(new Op(TaskChange.Kind.ADDED, task));
+            return this;
+        }
+
+        // Replaces the task with the same id on the task's day; an occurrence keeps only its done flag.
+        Batch update(Task task) {
+            ops.add(new Op(TaskChange.Kind.UPDATED, task));
+            return this;
+        }
+
+        // An occurrence is cancelled on its rule.
+        Batch remove(Task task) {
+            ops.add(new Op(TaskChange.Kind.REMOVED, task));
+            return this;
+        }
+
+        // Removes the task only if the stored one still has the same fields (not the same
+        // instance, which a packed day makes afresh on every read), so any edit since it was
+        // read leaves it in place; an occurrence only if its done flag is still the same.
+        Batch removeIfUnchanged(Task task) {
+            ops.add(new Op(TaskChange.Kind.REMOVED, task, true));
+            return this;
+        }
+
+        // Moves a stored task to another day, keeping its id.
+        Batch move(Task task, long epochDay) {
+            if (task.epochDay == epochDay) return this;
+            remove(task);
+            return add(task.withDay(epochDay));
+        }
+
+        int size() {
+            return ops.size();
+        }
+
+        private static final class Op {
+            final TaskChange.Kind kind;
+            final Task task;
+            final boolean ifUnchanged;
+
+            Op(TaskChange.Kind kind, Task task) {
+                this(kind, task, false);
+            }
+
+            Op(TaskChange.Kind kind, Task task, boolean ifUnchanged) {
+                this.kind = kind;
+                this.task = task;
+                this.ifUnchanged = ifUnchanged;
+            }
+        }
+
+        private static final class Edit {
+            final Task before;
+            Task after;
+            RecurrenceRule rule; // set when the task is an occurrence
+
+            Edit(Task before) {
+                this.before = before;
+            }
+        }
+    }
+
+    static class Snapshot {
+        final long version;
+        private final NavigableMap<Long, DayBucket> days;
+
+        Snapshot(long version, NavigableMap<Long, DayBucket> days) {
+            this.version = version;
+            this.days = Collections.unmodifiableNavigableMap(days);
+        }
+
+        List<Task> tasksOn(long epochDay) {
+            return days.getOrDefault(epochDay, DayBucket.EMPTY).tasks;
+        }
+
+        // Non-empty days in ascending order.
+        NavigableMap<Long, DayBucket> days() {
+            return days;
+        }
+    }
+}
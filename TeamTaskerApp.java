@@ -2,6 +2,8 @@ import javax.swing.*;
 
 public class TeamTaskerApp {
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new LoginScreen());
+        // start loading tasks and building the calendar before the login screen exists
+        StartupPipeline startup = StartupPipeline.start();
+        SwingUtilities.invokeLater(() -> new LoginScreen(startup));
     }
 }
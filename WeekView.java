@@ -0,0 +1,104 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.List;
+import java.util.function.LongConsumer;
+import javax.swing.*;
+import javax.swing.border.*;
+
+// Seven day columns, Sunday to Saturday like the month grid. The columns and their lists are
+// built once; showing another week only swaps list contents, and every task row is painted by
+// the one shared renderer. Days come from the MonthCache, so the neighbouring weeks are
+// already loaded by the time the user pages to them.
+class WeekView extends JPanel {
+    private static final Color HEADER_BG = new Color(230, 240, 255);
+    private static final Font HEADER_FONT = new Font("Segoe UI", Font.BOLD, 13);
+    private static final String[] DAY_NAMES = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+
+    private final MonthCache cache;
+    private final JLabel[] headers = new JLabel[7];
+    private final List<DefaultListModel<Task>> models = new ArrayList<>(7);
+    private final List<List<Task>> shown = new ArrayList<>(Collections.nCopies(7, null));
+    private long firstDay;
+
+    // onOpenDay receives the epoch day of a double-clicked column.
+    WeekView(MonthCache cache, LongConsumer onOpenDay) {
+        super(new GridLayout(1, 7, 4, 0));
+        this.cache = cache;
+        setBackground(Color.WHITE);
+        setBorder(new EmptyBorder(6, 6, 6, 6));
+        TaskRenderer renderer = new TaskRenderer();
+        for (int i = 0; i < 7; i++) {
+            int column = i;
+            headers[i] = new JLabel("", SwingConstants.CENTER);
+            headers[i].setFont(HEADER_FONT);
+            headers[i].setOpaque(true);
+            headers[i].setBackground(HEADER_BG);
+            headers[i].setBorder(new EmptyBorder(6, 0, 6, 0));
+            DefaultListModel<Task> model = new DefaultListModel<>();
+            models.add(model);
+            JList<Task> list = new JList<>(model);
+            list.setCellRenderer(renderer);
+            list.setFixedCellHeight(22);
+            MouseAdapter open = new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    if (e.getClickCount() == 2) onOpenDay.accept(firstDay + column);
+                }
+            };
+            list.addMouseListener(open);
+            headers[i].addMouseListener(open);
+            JPanel col = new JPanel(new BorderLayout());
+            col.setBorder(new LineBorder(new Color(0x2575fc), 1));
+            col.add(headers[i], BorderLayout.NORTH);
+            col.add(new JScrollPane(list), BorderLayout.CENTER);
+            add(col);
+        }
+        cache.onLoaded(this::refresh);
+    }
+
+    // Shows the week containing date and prefetches the months on either side.
+    void showWeek(LocalDate date) {
+        firstDay = date.toEpochDay() - date.getDayOfWeek().getValue() % 7;
+        LocalDate first = LocalDate.ofEpochDay(firstDay);
+        cache.prefetch(YearMonth.from(first).minusMonths(1), YearMonth.from(first.plusDays(6)).plusMonths(1));
+        refresh();
+    }
+
+    long firstDay() {
+        return firstDay;
+    }
+
+    // Refills only the columns whose day changed since they were last filled.
+    private void refresh() {
+        long today = CalendarClock.get().todayEpochDay();
+        for (int i = 0; i < 7; i++) {
+            long day = firstDay + i;
+            DayBucket bucket = cache.bucket(day);
+            String name = DAY_NAMES[i] + " " + LocalDate.ofEpochDay(day).getDayOfMonth();
+            headers[i].setText(bucket == null ? name + " \u2026" : name);
+            headers[i].setForeground(day == today ? new Color(0xB00020) : new Color(0x2575fc));
+            if (bucket == null || bucket.tasks == shown.get(i)) continue;
+            shown.set(i, bucket.tasks);
+            List<Task> sorted = new ArrayList<>(bucket.tasks);
+            sorted.sort(Task.BY_START);
+            DefaultListModel<Task> model = models.get(i);
+            model.clear();
+            model.addAll(sorted);
+        }
+    }
+
+    private static class TaskRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            Task t = (Task) value;
+            super.getListCellRendererComponent(list, t.line(), index, isSelected, cellHasFocus);
+            if (t.done && !isSelected) setForeground(Color.GRAY);
+            setToolTipText(t.description.isEmpty() ? null : t.description);
+            return this;
+        }
+    }
+}
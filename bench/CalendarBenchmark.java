@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.List;
+
+// Micro-benchmarks for the calendar hot paths, run headless at several store sizes:
+//
+//   javac -encoding UTF-8 -d out *.java
+//   javac -encoding UTF-8 -cp out -d out-bench bench/*.java
+//   java -Djava.awt.headless=true -Xmx6g -cp out:out-bench CalendarBenchmark \
+//        [--sizes 1000,100000,1000000] [--warmup 3] [--iterations 5] [--time-ms 1000] [--out bench.json]
+//
+// Each benchmark runs warmup and measurement iterations of fixed wall time and reports ns/op
+// plus bytes allocated per op on the benchmark thread (the equivalent of JMH's -prof gc
+// gc.alloc.rate.norm). Results are written as JSON in the same shape JMH uses, so runs from
+// different versions can be compared with the usual tooling.
+public class CalendarBenchmark {
+    private static final int SPREAD_DAYS = 730;
+
+    interface Op {
+        long run();
+    }
+
+    private static final class Result {
+        final String benchmark;
+        final int tasks;
+        final double score;
+        final double error;
+        final double allocPerOp;
+        final long ops;
+
+        Result(String benchmark, int tasks, double score, double error, double allocPerOp, long ops) {
+            this.benchmark = benchmark;
+            this.tasks = tasks;
+            this.score = score;
+            this.error = error;
+            this.allocPerOp = allocPerOp;
+            this.ops = ops;
+        }
+    }
+
+    private final int warmup;
+    private final int iterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads;
+    private long sink;
+
+    private CalendarBenchmark(int warmup, int iterations, long iterationMillis) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {1_000, 100_000, 1_000_000};
+        int warmup = 3;
+        int iterations = 5;
+        long timeMs = 1000;
+        Path out = Paths.get("bench.json");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = Arrays.stream(args[++i].split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--time-ms":
+                    timeMs = Long.parseLong(args[++i]);
+                    break;
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        CalendarBenchmark bench = new CalendarBenchmark(warmup, iterations, timeMs);
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            results.addAll(bench.runSize(size));
+        }
+        writeJson(out, results);
+        System.out.println("Wrote " + results.size() + " results to " + out.toAbsolutePath());
+    }
+
+    private List<Result> runSize(int size) {
+        List<Result> results = new ArrayList<>();
+        runSpread(size, results);
+        runWindow(size, results);
+        return results;
+    }
+
+    private void runSpread(int size, List<Result> results) {
+        long today = CalendarClock.get().todayEpochDay();
+
+        // tasks spread over two years around today, as a long-lived team calendar looks
+        TaskStore store = new TaskStore();
+        populate(store, size, today - SPREAD_DAYS / 2, SPREAD_DAYS);
+        List<Task> all = new ArrayList<>(size);
+        for (DayBucket bucket : store.snapshot().days().values()) all.addAll(bucket.tasks);
+        int nowMinute = 12 * 60;
+
+        CalendarGrid grid = new CalendarGrid(store, day -> { });
+        YearMonth thisMonth = YearMonth.from(CalendarClock.get().today());
+        YearMonth[] months = {thisMonth, thisMonth.plusMonths(1)};
+        int[] flip = {0};
+        results.add(measure("calendarGrid.showMonth", size, () -> {
+            grid.showMonth(months[flip[0]++ & 1]);
+            return flip[0];
+        }));
+
+        results.add(measure("task.isPastDue.sweep", size, () -> {
+            long overdue = 0;
+            for (Task t : all) {
+                if (!t.done && t.isPastDue(today, nowMinute)) overdue++;
+            }
+            return overdue;
+        }));
+
+        results.add(measure("dayBucket.overdue.sweep", size, () -> {
+            long overdue = 0;
+            for (Map.Entry<Long, DayBucket> e : store.range(Long.MIN_VALUE, Long.MAX_VALUE).entrySet()) {
+                overdue += e.getValue().overdue(e.getKey(), today, nowMinute);
+            }
+            return overdue;
+        }));
+
+        // Task.text() replaced extractTaskTitle(): titles are fields now, and the display string
+        // is only built when a row is rendered. Render one month's worth of rows per op.
+        List<Task> monthRows = new ArrayList<>();
+        for (DayBucket bucket : store.range(thisMonth.atDay(1).toEpochDay(), thisMonth.atEndOfMonth().toEpochDay()).values()) {
+            monthRows.addAll(bucket.tasks);
+        }
+        results.add(measure("task.text.month", size, () -> {
+            long chars = 0;
+            for (Task t : monthRows) chars += t.text().length();
+            return chars;
+        }));
+    }
+
+    private void runWindow(int size, List<Result> results) {
+        long today = CalendarClock.get().todayEpochDay();
+
+        // every task inside the reminder window, the worst case for the midnight sweep
+        TaskStore window = new TaskStore();
+        populate(window, size, today - 1, 3);
+        ReminderScheduler scheduler = new ReminderScheduler(window, (kind, task) -> { });
+        results.add(measure("reminder.armWindow", size, scheduler::armWindow));
+    }
+
+    static void populate(TaskStore store, int count, long firstDay, int days) {
+        Random random = new Random(42);
+        List<Task> batch = new ArrayList<>(Math.min(count, 50_000));
+        for (int i = 0; i < count; i++) {
+            int start = 8 * 60 + random.nextInt(10 * 60);
+            batch.add(new Task(store.newId(), "Task " + i, "Synthetic task " + i,
+                    firstDay + random.nextInt(days), start, start + 15 + random.nextInt(120), random.nextInt(4) == 0));
+            if (batch.size() == 50_000) {
+                store.addAll(batch);
+                batch.clear();
+            }
+        }
+        store.addAll(batch);
+    }
+
+    private Result measure(String name, int tasks, Op op) {
+        for (int i = 0; i < warmup; i++) {
+            iteration(op);
+        }
+        double[] scores = new double[iterations];
+        long totalOps = 0;
+        long totalAlloc = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] r = iteration(op);
+            scores[i] = (double) r[0] / r[1];
+            totalOps += r[1];
+            totalAlloc += r[2];
+        }
+        double mean = Arrays.stream(scores).average().orElse(0);
+        double var = 0;
+        for (double s : scores) var += (s - mean) * (s - mean);
+        double stdev = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+        // JMH's scoreError: half-width of the 99.9% confidence interval of the mean
+        double error = iterations > 1 ? studentT999(iterations - 1) * stdev / Math.sqrt(iterations) : 0;
+        double allocPerOp = threads == null ? -1 : (double) totalAlloc / totalOps;
+        System.out.printf("%-26s %9d tasks  %14.1f ns/op  +- %10.1f  %12.1f B/op%n",
+                name, tasks, mean, error, allocPerOp);
+        return new Result(name, tasks, mean, error, allocPerOp, totalOps);
+    }
+
+    private static final double[] T_999 = {
+            636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646,
+    };
+
+    // Two-sided 99.9% quantile of Student's t (the 0.9995 point) for df degrees of freedom;
+    // past the table it uses the value at the next smaller tabulated df, which errs wide.
+    private static double studentT999(int df) {
+        if (df <= T_999.length) return T_999[df - 1];
+        if (df < 40) return T_999[T_999.length - 1];
+        if (df < 60) return 3.551;
+        if (df < 120) return 3.460;
+        return 3.373;
+    }
+
+    // Returns {elapsed nanos, ops, bytes allocated}.
+    private long[] iteration(Op op) {
+        long tid = Thread.currentThread().getId();
+        long alloc0 = threads == null ? 0 : threads.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        long ops = 0;
+        long elapsed;
+        do {
+            sink += op.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        long alloc = threads == null ? 0 : threads.getThreadAllocatedBytes(tid) - alloc0;
+        return new long[] {elapsed, ops, alloc};
+    }
+
+    private static void writeJson(Path out, List<Result> results) throws IOException {
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+            w.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                w.printf(Locale.ROOT, "  {\"benchmark\": \"%s\", \"mode\": \"avgt\", \"params\": {\"tasks\": \"%d\"},%n"
+                                + "   \"primaryMetric\": {\"score\": %.3f, \"scoreError\": %.3f, \"scoreUnit\": \"ns/op\"},%n"
+                                + "   \"secondaryMetrics\": {\"gc.alloc.rate.norm\": {\"score\": %.3f, \"scoreUnit\": \"B/op\"},"
+                                + " \"ops\": {\"score\": %d, \"scoreUnit\": \"ops\"}}}%s%n",
+                        r.benchmark, r.tasks, r.score, r.error, r.allocPerOp, r.ops, i + 1 < results.size() ? "," : "");
+            }
+            w.println("]");
+        }
+    }
+}
@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.SwingUtilities;
+
+// Headless soak test: loads a large synthetic calendar, installs a simulated clock and replays
+// whole days in fixed steps while a load generator edits tasks, the month grid and week view
+// follow the store on the EDT and the reminder scheduler fires into a counting sink.
+//
+//   javac -encoding UTF-8 -d out *.java
+//   javac -encoding UTF-8 -cp out -d out-bench bench/*.java
+//   java -Djava.awt.headless=true -Xmx6g -cp out:out-bench CalendarSoak \
+//        [--tasks 1000000] [--days 3] [--step-minutes 5] [--edits 20] [--start 2026-03-28]
+//        [--max-heap-growth-mb 0] [--out soak.json]
+//
+// Per simulated day it prints EDT frame times (a refresh posted to the EDT until it finished),
+// reminder latency (time step until the sink saw the reminder, in real time), reminders fired
+// and missed, and heap in use after a full GC. The process exits with status 1 when a
+// timed task never got its start reminder, the scheduler failed to settle after a step, or the
+// heap grew by more than --max-heap-growth-mb over the run.
+public class CalendarSoak {
+    private static final int SPREAD_DAYS = 730;
+    private static final long SETTLE_NANOS = 10_000_000_000L;
+
+    private final Histogram frames = new Histogram();
+    private final Histogram reminderLatency = new Histogram();
+    private final LongAdder[] fired = new LongAdder[ReminderScheduler.Kind.values().length];
+    private final Map<Long, Set<Long>> startReminders = new ConcurrentHashMap<>();
+    private final Random random = new Random(7);
+    private volatile long steppedAt;
+    private long missed;
+    private long stalls;
+    private long edits;
+
+    private CalendarSoak() {
+        for (int i = 0; i < fired.length; i++) fired[i] = new LongAdder();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tasks = 1_000_000;
+        int days = 3;
+        int stepMinutes = 5;
+        int editsPerStep = 20;
+        LocalDate start = LocalDate.now();
+        long maxGrowthMb = 0;
+        Path out = Paths.get("soak.json");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tasks":
+                    tasks = Integer.parseInt(args[++i]);
+                    break;
+                case "--days":
+                    days = Integer.parseInt(args[++i]);
+                    break;
+                case "--step-minutes":
+                    stepMinutes = Integer.parseInt(args[++i]);
+                    break;
+                case "--edits":
+                    editsPerStep = Integer.parseInt(args[++i]);
+                    break;
+                case "--start":
+                    start = LocalDate.parse(args[++i]);
+                    break;
+                case "--max-heap-growth-mb":
+                    maxGrowthMb = Long.parseLong(args[++i]);
+                    break;
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+        boolean ok = new CalendarSoak().run(tasks, days, stepMinutes, editsPerStep, start, maxGrowthMb, out);
+        System.exit(ok ? 0 : 1);
+    }
+
+    private boolean run(int tasks, int days, int stepMinutes, int editsPerStep, LocalDate start,
+                        long maxGrowthMb, Path out) throws Exception {
+        // installed first: everything built below reads the clock it finds at construction
+        CalendarClock.Simulated clock = new CalendarClock.Simulated(start.atStartOfDay());
+        CalendarClock.install(clock);
+
+        long loadStarted = System.nanoTime();
+        TaskStore store = new TaskStore();
+        CalendarBenchmark.populate(store, tasks, start.toEpochDay() - SPREAD_DAYS / 2, SPREAD_DAYS);
+        System.out.printf("Loaded %,d tasks in %d ms%n", store.size(), (System.nanoTime() - loadStarted) / 1_000_000);
+        CalendarMetrics.INSTANCE.start(store);
+
+        MonthCache cache = new MonthCache(store);
+        CalendarGrid[] grid = new CalendarGrid[1];
+        WeekView[] week = new WeekView[1];
+        SwingUtilities.invokeAndWait(() -> {
+            grid[0] = new CalendarGrid(store, day -> { });
+            week[0] = new WeekView(cache, day -> { });
+            grid[0].attach();
+            cache.attach();
+            grid[0].showMonth(YearMonth.from(start));
+            week[0].showWeek(start);
+        });
+        ReminderScheduler scheduler = new ReminderScheduler(store, (kind, task) -> {
+            reminderLatency.record(System.nanoTime() - steppedAt);
+            fired[kind.ordinal()].increment();
+            if (kind == ReminderScheduler.Kind.AT_START) {
+                startReminders.computeIfAbsent(task.epochDay, d -> ConcurrentHashMap.newKeySet()).add(task.id);
+            }
+        });
+        steppedAt = System.nanoTime();
+        scheduler.start();
+        settle(scheduler);
+
+        long baseline = heapAfterGc();
+        long peak = baseline;
+        Duration step = Duration.ofMinutes(stepMinutes);
+        long day = clock.todayEpochDay();
+        long end = day + days;
+        System.out.println("day         fired   missed  edits  frame p50/p99/max [us]   reminder p50/p99/max [us]  heap [MB]");
+        while (clock.todayEpochDay() < end) {
+            for (int i = 0; i < editsPerStep; i++) edit(store, clock);
+            steppedAt = System.nanoTime();
+            clock.advance(step);
+            if (!settle(scheduler)) stalls++;
+            long posted = System.nanoTime();
+            SwingUtilities.invokeAndWait(grid[0]::refreshCells);
+            frames.record(System.nanoTime() - posted);
+
+            long today = clock.todayEpochDay();
+            if (today == day) continue;
+            // midnight: audit the day that ended, then page the views like a user would
+            long dayMissed = auditStartReminders(store, day);
+            missed += dayMissed;
+            LocalDate date = LocalDate.ofEpochDay(today);
+            SwingUtilities.invokeAndWait(() -> {
+                grid[0].showMonth(YearMonth.from(date));
+                week[0].showWeek(date);
+            });
+            long heap = heapAfterGc();
+            peak = Math.max(peak, heap);
+            String line = String.format("%s %7d %8d %6d  %7d/%7d/%7d   %8d/%8d/%8d   %8d",
+                    LocalDate.ofEpochDay(day), totalFired(), dayMissed, edits,
+                    frames.percentile(0.5) / 1000, frames.percentile(0.99) / 1000, frames.max() / 1000,
+                    reminderLatency.percentile(0.5) / 1000, reminderLatency.percentile(0.99) / 1000,
+                    reminderLatency.max() / 1000, heap >> 20);
+            System.out.println(line);
+            startReminders.remove(day);
+            day = today;
+        }
+
+        long growthMb = (heapAfterGc() - baseline) >> 20;
+        boolean ok = missed == 0 && stalls == 0 && (maxGrowthMb <= 0 || growthMb <= maxGrowthMb);
+        System.out.println("edtLatency[us] " + CalendarMetrics.INSTANCE.getEdtLatencyMicros());
+        System.out.printf("%s: %d days, %d missed start reminders, %d stalled steps, heap growth %d MB%n",
+                ok ? "PASS" : "FAIL", days, missed, stalls, growthMb);
+        writeJson(out, tasks, days, stepMinutes, growthMb, peak, ok);
+        return ok;
+    }
+
+    // One synthetic edit: mostly new tasks on later days and completions today, some deletions.
+    // Tasks added today start after the current minute, so every one of them is owed a reminder.
+    private void edit(TaskStore store, CalendarClock clock) {
+        long today = clock.todayEpochDay();
+        int nowMinute = clock.minuteOfDay();
+        int op = random.nextInt(10);
+        edits++;
+        if (op < 4) {
+            long day = today + 2 + random.nextInt(60);
+            int startMinute = 8 * 60 + random.nextInt(10 * 60);
+            store.add(new Task(store.newId(), "Soak " + edits, "", day, startMinute, startMinute + 30, false));
+        } else if (op < 6 && nowMinute < 24 * 60 - 2) {
+            int startMinute = nowMinute + 1 + random.nextInt(24 * 60 - nowMinute - 1);
+            store.add(new Task(store.newId(), "Soak " + edits, "", today, startMinute,
+                    Math.min(startMinute + 30, 24 * 60 - 1), false));
+        } else if (op < 9) {
+            List<Task> on = store.tasksOn(today);
+            if (!on.isEmpty()) {
+                Task t = on.get(random.nextInt(on.size()));
+                if (!t.done) store.update(t.withDone(true));
+            }
+        } else {
+            List<Task> on = store.tasksOn(today + 30 + random.nextInt(300));
+            if (!on.isEmpty()) store.remove(on.get(random.nextInt(on.size())));
+        }
+    }
+
+    // Timed tasks still open at the end of day that never got their AT_START reminder.
+    private long auditStartReminders(TaskStore store, long day) {
+        Set<Long> seen = startReminders.getOrDefault(day, Collections.emptySet());
+        long count = 0;
+        for (Task t : store.tasksOn(day)) {
+            if (!t.done && t.startMinute != Task.NO_TIME && !seen.contains(t.id)) count++;
+        }
+        return count;
+    }
+
+    // Waits until the scheduler has fired everything that became due.
+    private static boolean settle(ReminderScheduler scheduler) throws InterruptedException {
+        long deadline = System.nanoTime() + SETTLE_NANOS;
+        while (!scheduler.idle()) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(0, 100_000);
+        }
+        return true;
+    }
+
+    private long totalFired() {
+        long n = 0;
+        for (LongAdder a : fired) n += a.sum();
+        return n;
+    }
+
+    // Heap in use after a full collection, so the figure tracks retained data rather than
+    // garbage waiting to be collected. Called once per simulated day, not per step.
+    private static long heapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private void writeJson(Path out, int tasks, int days, int stepMinutes, long growthMb, long peak, boolean ok)
+            throws IOException {
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+            w.println("{");
+            w.printf(Locale.ROOT, "  \"tasks\": %d, \"days\": %d, \"stepMinutes\": %d, \"edits\": %d,%n",
+                    tasks, days, stepMinutes, edits);
+            w.printf(Locale.ROOT, "  \"frameMicros\": {\"p50\": %d, \"p99\": %d, \"max\": %d, \"count\": %d},%n",
+                    frames.percentile(0.5) / 1000, frames.percentile(0.99) / 1000, frames.max() / 1000, frames.count());
+            w.printf(Locale.ROOT, "  \"reminderLatencyMicros\": {\"p50\": %d, \"p99\": %d, \"max\": %d, \"count\": %d},%n",
+                    reminderLatency.percentile(0.5) / 1000, reminderLatency.percentile(0.99) / 1000,
+                    reminderLatency.max() / 1000, reminderLatency.count());
+            w.print("  \"remindersFired\": {");
+            ReminderScheduler.Kind[] kinds = ReminderScheduler.Kind.values();
+            for (int i = 0; i < kinds.length; i++) {
+                w.printf("\"%s\": %d%s", kinds[i], fired[i].sum(), i + 1 < kinds.length ? ", " : "");
+            }
+            w.println("},");
+            w.printf(Locale.ROOT, "  \"missedStartReminders\": %d, \"stalledSteps\": %d,%n", missed, stalls);
+            w.printf(Locale.ROOT, "  \"heapGrowthMb\": %d, \"peakHeapMb\": %d, \"passed\": %b%n", growthMb, peak >> 20, ok);
+            w.println("}");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.*;
+import java.util.List;
+
+// Checks of TaskStore behaviour that depends on the stored layout. Run it both ways:
+//
+//   javac -d out *.java
+//   javac -cp out -d out-bench bench/*.java
+//   java -cp out:out-bench StoreCheck
+//   java -Dteamtasker.compactStore=true -cp out:out-bench StoreCheck
+//
+// Prints one line per check and exits with status 1 if any failed.
+public class StoreCheck {
+    private int failures;
+
+    public static void main(String[] args) {
+        StoreCheck c = new StoreCheck();
+        System.out.println("layout: " + (DayBucket.COMPACT ? "compact" : "plain"));
+        c.conditionalRemove();
+        c.conditionalRemoveOfOccurrences();
+        if (c.failures > 0) {
+            System.out.println(c.failures + " check(s) failed");
+            System.exit(1);
+        }
+    }
+
+    // Clean Up's pattern: scan the done tasks, then remove them if nothing changed meanwhile.
+    private void conditionalRemove() {
+        TaskStore store = new TaskStore();
+        Task a = new Task(store.newId(), "a", "", 10, 60, 120, true);
+        Task b = new Task(store.newId(), "b", "", 10, 60, 120, true);
+        Task c = new Task(store.newId(), "c", "", 11, Task.NO_TIME, Task.NO_TIME, true);
+        Task open = new Task(store.newId(), "open", "", 11, 60, 120, false);
+        store.addAll(Arrays.asList(a, b, c, open));
+
+        TaskStore.Batch batch = new TaskStore.Batch();
+        List<Task> scanned = new ArrayList<>();
+        for (DayBucket day : store.range(0, 11).values()) {
+            for (Task t : day.tasks) {
+                if (t.done) {
+                    batch.removeIfUnchanged(t);
+                    scanned.add(t);
+                }
+            }
+        }
+        check(scanned.size() == 3, "scan finds 3 done tasks, got " + scanned.size());
+        // edited after the scan: unticked, and renamed
+        store.update(store.find(10, b.id).withDone(false));
+        Task renamed = new Task(c.id, "c2", "", c.epochDay, c.startMinute, c.endMinute, true);
+        store.update(renamed);
+
+        int deleted = store.apply(batch);
+        check(deleted == 1, "only the unchanged task is removed, got " + deleted);
+        check(store.find(10, a.id) == null, "unchanged done task is gone");
+        check(store.find(10, b.id) != null, "task unticked after the scan is kept");
+        check(store.find(11, c.id) != null, "task renamed after the scan is kept");
+        check(store.size() == 3, "3 tasks left, got " + store.size());
+    }
+
+    private void conditionalRemoveOfOccurrences() {
+        TaskStore store = new TaskStore();
+        RecurrenceRule rule = new RecurrenceRule(store.newId(), "daily", "", 60, 90, 0,
+                RecurrenceRule.Frequency.DAILY, 1, 0, RecurrenceRule.NO_END, 0);
+        store.putRule(rule);
+        store.update(rule.occurrence(5).withDone(true));
+        store.update(rule.occurrence(6).withDone(true));
+        TaskStore.Batch batch = new TaskStore.Batch();
+        batch.removeIfUnchanged(store.find(5, rule.id)).removeIfUnchanged(store.find(6, rule.id));
+        store.update(store.find(6, rule.id).withDone(false));
+
+        int deleted = store.apply(batch);
+        check(deleted == 1, "only the unchanged occurrence is cancelled, got " + deleted);
+        check(store.find(5, rule.id) == null, "occurrence cancelled");
+        check(store.find(6, rule.id) != null, "occurrence unticked after the scan is kept");
+    }
+
+    private void check(boolean ok, String what) {
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if (!ok) failures++;
+    }
+}